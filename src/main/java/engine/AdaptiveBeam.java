@@ -0,0 +1,72 @@
+package engine;
+
+import lombok.AllArgsConstructor;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides how many of a node's moves to search, in place of the engine's fixed topNVariations. Nodes near
+ * the root get more, since a mistake there costs the most, and the whole beam shrinks or grows with the time
+ * left. Then the shallow scores have their say: moves within a whisker of the last one in are let in too,
+ * rather than leaving the choice between them to move order, and moves far behind the best are cut.
+ */
+@AllArgsConstructor
+public class AdaptiveBeam {
+    /**
+     * Never search fewer moves than this (if there are that many).
+     */
+    final int minWidth;
+    /**
+     * Never search more moves than this.
+     */
+    final int maxWidth;
+    /**
+     * Moves to search a ply from the leaves, with the usual time left.
+     */
+    final double baseWidth;
+    /**
+     * Extra moves to search for each ply further from the leaves.
+     */
+    final double widthPerPly;
+    /**
+     * Moves scoring less than this behind the last one in are let in too (0 for none). In the evaluator's
+     * units.
+     */
+    final double tieMargin;
+    /**
+     * Moves scoring more than this behind the best are cut. In the evaluator's units.
+     */
+    final double dominanceMargin;
+    /**
+     * Time left as a fraction of the usual, e.g. of a move's share of the clock. Widths are scaled by it.
+     */
+    final DoubleSupplier timeScale;
+
+    /**
+     * A beam for searches without a clock.
+     */
+    public AdaptiveBeam(int minWidth, int maxWidth, double baseWidth, double widthPerPly, double tieMargin,
+                        double dominanceMargin) {
+        this(minWidth, maxWidth, baseWidth, widthPerPly, tieMargin, dominanceMargin, () -> 1);
+    }
+
+    /**
+     * @param depth plies left to search below the node
+     * @param scores the node's best moves' shallow scores (for the player to move), best first
+     * @param nScores how many of SCORES there are, at most maxWidth
+     * @return how many of those moves to search
+     */
+    int width(int depth, double[] scores, int nScores) {
+        final int floor = Math.max(1, this.minWidth);
+        final double scale = Math.max(0, this.timeScale.getAsDouble());
+        int width = (int) Math.round((this.baseWidth + this.widthPerPly * (depth - 1)) * scale);
+        width = Math.min(Math.max(width, floor), nScores);
+        while (width < nScores && scores[width] > scores[width - 1] - this.tieMargin) {
+            width++;
+        }
+        while (width > floor && scores[width - 1] < scores[0] - this.dominanceMargin) {
+            width--;
+        }
+        return width;
+    }
+}
@@ -0,0 +1,174 @@
+package engine;
+
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A search running in the background, deepening a ply at a time up to a maximum depth. Each finished depth
+ * is reported to a listener and becomes the result so far, so a caller with a deadline can take whatever is
+ * there when time runs out.
+ *
+ * The search stops as soon as this future completes, however that happens: {@link #cancel}, {@link #stop},
+ * or e.g. {@link #orTimeout}. Every thread working on it, parallel workers included, checks in at each node
+ * it visits ({@link #checkCurrent}), in the duo search and endgame solver too, and drops its work. Nothing
+ * half-searched goes into the transposition table.
+ *
+ * <pre>
+ *   AnytimeSearch search = engine.searchAsync(state, 8, true, executor, progress::show);
+ *   ...
+ *   search.stop();  // e.g. out of time: complete with the deepest result so far
+ * </pre>
+ */
+public class AnytimeSearch extends CompletableFuture<EvaluatedGameState> {
+    /**
+     * The search the current thread is working for, if any.
+     */
+    private static final ThreadLocal<AnytimeSearch> CURRENT = new ThreadLocal<>();
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile EvaluatedGameState latest;
+
+    /**
+     * Thrown out of a search that has been stopped, unwinding it back to {@link #run}.
+     */
+    static class Abandoned extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Abandoned() {
+            super("Search abandoned", null, false, false);
+        }
+    }
+
+    AnytimeSearch() {
+    }
+
+    /**
+     * Search STATE to depth 1, 2, ... MAX_DEPTH on EXECUTOR.
+     */
+    static AnytimeSearch start(Engine engine, GameState state, int maxDepth, boolean parallel, Executor executor,
+                               Consumer<EvaluatedGameState> onImprovement) {
+        final AnytimeSearch search = new AnytimeSearch();
+        executor.execute(() -> search.run(engine, state, maxDepth, parallel, onImprovement));
+        return search;
+    }
+
+    private void run(Engine engine, GameState state, int maxDepth, boolean parallel,
+                     Consumer<EvaluatedGameState> onImprovement) {
+        try {
+            within(this, () -> {
+                for (int depth = 1; depth <= maxDepth && !this.isDone(); depth++) {
+                    final EvaluatedGameState result;
+                    try {
+                        result = engine.evaluate(state, depth, parallel);
+                    } catch (Abandoned e) {
+                        return null;
+                    } catch (Exception e) {
+                        this.completeExceptionally(e);
+                        return null;
+                    }
+                    if (this.isDone()) {
+                        return null;
+                    }
+                    this.latest = result;
+                    onImprovement.accept(result);
+                }
+                this.complete(this.latest);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            this.completeExceptionally(e);
+        } finally {
+            this.stopped.countDown();
+        }
+    }
+
+    /**
+     * Do WORK on this thread on behalf of this search, and complete with its result. Stopping the search
+     * abandons WORK, or skips it if it hasn't started.
+     */
+    void run(Supplier<EvaluatedGameState> work) {
+        try {
+            if (!this.isDone()) {
+                this.complete(within(this, work));
+            }
+        } catch (Abandoned e) {
+            // Stopped.
+        } catch (RuntimeException e) {
+            this.completeExceptionally(e);
+        } finally {
+            this.stopped.countDown();
+        }
+    }
+
+    /**
+     * @return the result of the deepest search finished so far
+     */
+    public Optional<EvaluatedGameState> latest() {
+        return Optional.ofNullable(this.latest);
+    }
+
+    /**
+     * Stop searching and complete with the result so far, or cancel if there is none yet.
+     * @return the result the search completed with, if any
+     */
+    public Optional<EvaluatedGameState> stop() {
+        final EvaluatedGameState result = this.latest;
+        if (result == null) {
+            this.cancel(false);
+        } else {
+            this.complete(result);
+        }
+        try {
+            return Optional.ofNullable(this.getNow(null));
+        } catch (CancellationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Wait for the threads working on the search to let go of it. For tests.
+     */
+    boolean awaitStopped(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.stopped.await(timeout, unit);
+    }
+
+    /**
+     * @return the search the current thread is working for, or null
+     */
+    static AnytimeSearch current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Throw {@link Abandoned} if the current thread is working for a search that has been stopped. Searches
+     * outside the engine proper call this at each node too.
+     */
+    public static void checkCurrent() {
+        final AnytimeSearch search = CURRENT.get();
+        if (search != null && search.isDone()) {
+            throw new Abandoned();
+        }
+    }
+
+    /**
+     * Do WORK on behalf of SEARCH (which may be null), e.g. on a pool thread that picked up part of it.
+     */
+    static <T> T within(AnytimeSearch search, Supplier<T> work) {
+        final AnytimeSearch outer = CURRENT.get();
+        if (outer == search) {
+            return work.get();
+        }
+        CURRENT.set(search);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.set(outer);
+        }
+    }
+}
@@ -2,10 +2,39 @@ package engine;
 
 import model.player.Player;
 
+import java.util.List;
+import java.util.Map;
+
 @FunctionalInterface
 public interface BoardEvaluator {
+    /**
+     * Number of rows in the score arrays of {@link #evaluateChildren}: one per Player value.
+     */
+    int N_SCORE_ROWS = Player.values().length;
+
     /**
      * Return a heuristic for how good this position is for the player who is currently playing.
      */
     Evaluation evaluate(GameState state);
+
+    /**
+     * Score every child of a position in one go. Siblings differ from PARENT by a single placement, so
+     * evaluators that can should score them as deltas from PARENT instead of from scratch.
+     *
+     * Scores are laid out a player at a time, so the scores of the player choosing a move are contiguous:
+     * child I's score for PLAYER goes in SCORES[PLAYER.ordinal() * CHILDREN.size() + I]. Players the
+     * evaluator has no score for get NaN.
+     * @param parent the position the children were played from
+     * @param children positions one move (or pass) after PARENT
+     * @param scores at least N_SCORE_ROWS * CHILDREN.size() long
+     */
+    default void evaluateChildren(GameState parent, List<GameState> children, double[] scores) {
+        final int nChildren = children.size();
+        for (int i = 0; i < nChildren; i++) {
+            final Map<Player, Double> childScores = this.evaluate(children.get(i)).getScores();
+            for (Player player : Player.values()) {
+                scores[player.ordinal() * nChildren + i] = childScores.getOrDefault(player, Double.NaN);
+            }
+        }
+    }
 }
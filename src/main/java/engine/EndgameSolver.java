@@ -0,0 +1,173 @@
+package engine;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Value;
+import model.board.Board;
+import model.player.Player;
+
+import java.util.*;
+
+/**
+ * Exact, full-width search for the end of the game. Each player maximizes their own final square
+ * count (ties broken by margin over everyone else), so no heuristic or beam is involved.
+ *
+ * Players whose reachable cells no longer overlap can't affect each other, so the position is split into
+ * independent regions that are solved separately and then combined. Solved positions are memoised.
+ */
+public class EndgameSolver {
+    /**
+     * Scores the final position, so that solved results are on the same scale as the engine's.
+     */
+    final BoardEvaluator evaluator;
+    /**
+     * Only take over when the players still in the game can reach at most this many cells in total.
+     */
+    final int maxReachableCells;
+    /**
+     * Memoised solutions, keyed by position.
+     */
+    final Cache<GameState, Solution> solutions;
+
+    public EndgameSolver(BoardEvaluator evaluator, int maxReachableCells, int cacheSize) {
+        this.evaluator = evaluator;
+        this.maxReachableCells = maxReachableCells;
+        this.solutions = CacheBuilder.newBuilder()
+                .concurrencyLevel(Engine.CONCURRENCY_LEVEL)
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    /**
+     * Best move and final position when every player plays perfectly from here on.
+     */
+    @Value
+    static class Solution {
+        GameState bestMove;
+        GameState finalState;
+    }
+
+    /**
+     * @return true if this position is small enough to solve exactly
+     */
+    public boolean applies(GameState state) {
+        int reachable = 0;
+        for (Player player : state.nextPlayers) {
+            reachable += state.board.reachableCells(player).cardinality();
+            if (reachable > this.maxReachableCells) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the best move from this position, and the evaluation of the position the game ends in
+     */
+    public EvaluatedGameState solve(GameState state) {
+        final Solution solution = this.solveExactly(state);
+        return new EvaluatedGameState(solution.getBestMove(), this.evaluator.evaluate(solution.getFinalState()));
+    }
+
+    Solution solveExactly(GameState state) {
+        AnytimeSearch.checkCurrent();
+        if (state.isOver()) {
+            return new Solution(state, state);
+        }
+        final Solution cached = this.solutions.getIfPresent(state);
+        if (cached != null) {
+            return cached;
+        }
+
+        final List<Set<Player>> regions = independentRegions(state);
+        final Solution solution = regions.size() > 1
+                ? this.solveRegions(state, regions)
+                : this.solveFullWidth(state);
+        this.solutions.put(state, solution);
+        return solution;
+    }
+
+    private Solution solveFullWidth(GameState state) {
+        final Player nowPlaying = state.nowPlaying();
+        Solution best = null;
+        int bestOwn = Integer.MIN_VALUE;
+        int bestMargin = Integer.MIN_VALUE;
+        for (GameState child : state.possibleMoves()) {
+            final GameState finalState = this.solveExactly(child).getFinalState();
+            final Map<Player, Integer> counts = finalState.board.getNSquaresOccupied();
+            final int own = counts.get(nowPlaying);
+            int margin = own;
+            for (Player player : GameState.STARTING_ORDER) {
+                if (player != nowPlaying) {
+                    margin -= counts.get(player);
+                }
+            }
+            if (own > bestOwn || (own == bestOwn && margin > bestMargin)) {
+                bestOwn = own;
+                bestMargin = margin;
+                best = new Solution(child, finalState);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Solve each region on its own and lay the results on top of each other.
+     */
+    private Solution solveRegions(GameState state, List<Set<Player>> regions) {
+        Board finalBoard = state.board;
+        final int[] finalUnplayed = state.unplayedPieces.clone();
+        GameState bestMove = null;
+
+        for (Set<Player> region : regions) {
+            final Solution regionSolution = this.solveExactly(state.restrictedTo(region));
+            final GameState regionFinalState = regionSolution.getFinalState();
+            finalBoard = finalBoard.overlay(regionFinalState.board);
+            for (Player player : region) {
+                finalUnplayed[player.ordinal()] = regionFinalState.unplayedPieces(player);
+            }
+            if (region.contains(state.nowPlaying())) {
+                bestMove = matchingChild(state, regionSolution.getBestMove());
+            }
+        }
+
+        return new Solution(bestMove, GameState.finished(finalBoard, finalUnplayed, state.turnNumber));
+    }
+
+    /**
+     * @return the child of STATE that makes the same placement as REGION_CHILD, a child of STATE restricted
+     *  to one region
+     */
+    private static GameState matchingChild(GameState state, GameState regionChild) {
+        for (GameState child : state.possibleMoves()) {
+            if (child.board.getZobristHash() == regionChild.board.getZobristHash()
+                    && child.board.equals(regionChild.board)) {
+                return child;
+            }
+        }
+        throw new IllegalStateException("Region move is not a legal move in the full position");
+    }
+
+    /**
+     * Group the players still in the game so that players in different groups can never touch the same cell.
+     */
+    static List<Set<Player>> independentRegions(GameState state) {
+        final List<Set<Player>> regions = new ArrayList<>();
+        final List<BitSet> regionCells = new ArrayList<>();
+
+        for (Player player : state.nextPlayers) {
+            final Set<Player> region = EnumSet.of(player);
+            final BitSet cells = state.board.reachableCells(player);
+            // Absorb every existing region that overlaps this player's cells.
+            for (int k = regions.size() - 1; k >= 0; k--) {
+                if (regionCells.get(k).intersects(cells)) {
+                    region.addAll(regions.remove(k));
+                    cells.or(regionCells.remove(k));
+                }
+            }
+            regions.add(region);
+            regionCells.add(cells);
+        }
+        return regions;
+    }
+}
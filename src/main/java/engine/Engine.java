@@ -1,18 +1,40 @@
 package engine;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import engine.book.OpeningBook;
+import engine.duo.DuoSearch;
+import engine.persistent.PersistentTranspositionTable;
 import lombok.AllArgsConstructor;
+import lombok.Setter;
 import model.player.Player;
 
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @AllArgsConstructor
 public class Engine {
     public static final int CONCURRENCY_LEVEL = 8;
+    private static final int HINTS_PER_TABLE_ENTRY = 4;
+    /**
+     * With a memory budget, the hints get this fraction of it and the table the rest.
+     */
+    private static final int HINT_SHARE = 16;
+    /**
+     * How long the table has to go without shrinking before its byte limit is let up again, doubling each
+     * time.
+     */
+    private static final long LIMIT_RECOVERY_NANOS = TimeUnit.SECONDS.toNanos(30);
     /**
      * Heuristic to evaluate a single position
      */
@@ -25,34 +47,145 @@ public class Engine {
      * Cache position evaluations.
      */
     final LoadingCache<EvaluationTask, EvaluatedGameState> transpositionTable;
+    /**
+     * Best move found at each searched position, by canonical hash and in canonical orientation. Entries
+     * are far smaller than the table's, so there are more of them and they outlive the table's. The next
+     * search from a position searched before always looks at the move that came out best last time.
+     */
+    final Cache<Long, Integer> bestMoveHints;
+    /**
+     * Deepest search so far. A result at any depth up to this one can stand in for a shallower search.
+     */
+    final AtomicInteger deepestSearch;
+    /**
+     * Calls to evaluate, i.e. positions searched, for benchmarking.
+     */
+    final LongAdder nodes;
+    /**
+     * Transposition table lookups, and those that had to search, for benchmarking.
+     */
+    final LongAdder tableLookups;
+    final LongAdder tableMisses;
+    /**
+     * Estimated bytes held by the transposition table (see {@link Footprint}), however the table is bounded.
+     */
+    final LongAdder tableBytes;
+    /**
+     * The table is trimmed back to this many bytes whenever it grows past them. No limit beyond the table's
+     * own bound until the heap runs short; see {@link #shrink}.
+     */
+    final AtomicLong tableByteLimit;
+    /**
+     * System.nanoTime() when tableByteLimit last changed.
+     */
+    private final AtomicLong limitChanged;
+    /**
+     * Precomputed opening moves, consulted before searching. Optional.
+     */
+    @Setter
+    OpeningBook openingBook;
+    /**
+     * Exact search that takes over from the heuristic once few cells remain. Optional.
+     */
+    @Setter
+    EndgameSolver endgameSolver;
+    /**
+     * On-disk tier behind the transposition table, shared across runs. Optional.
+     */
+    @Setter
+    PersistentTranspositionTable persistentTable;
+    /**
+     * Alpha-beta search that takes over once two players are left on a small enough board, e.g. in the
+     * two-player variant. Optional.
+     */
+    @Setter
+    DuoSearch duoSearch;
+    /**
+     * Varies how many moves are searched at each node. Optional; without it every node searches
+     * topNVariations.
+     */
+    @Setter
+    AdaptiveBeam adaptiveBeam;
+    /**
+     * Searches low-ranked moves shallower and forcing moves deeper. Optional; without it every move is
+     * searched to the same depth.
+     */
+    @Setter
+    SelectiveDepth selectiveDepth;
 
+    /**
+     * @param cacheSize most results the transposition table holds. How much memory that takes varies a lot
+     *  with the board and the evaluator; see {@link #withMemoryBudget} to bound that instead.
+     */
     public Engine(BoardEvaluator evaluator, int topNVariations, int cacheSize) {
+        this(evaluator, topNVariations, cacheSize, false, HINTS_PER_TABLE_ENTRY * (long) cacheSize);
+    }
+
+    /**
+     * @param tableBound most results in the transposition table, or if IN_BYTES, most bytes they take up
+     * @param maxHints most best move hints kept
+     */
+    private Engine(BoardEvaluator evaluator, int topNVariations, long tableBound, boolean inBytes, long maxHints) {
         this.evaluator = evaluator;
         this.topNVariations = topNVariations;
-        this.transpositionTable = this.initializeCache(cacheSize);
+        this.tableBytes = new LongAdder();
+        this.tableByteLimit = new AtomicLong(Long.MAX_VALUE);
+        this.limitChanged = new AtomicLong(System.nanoTime());
+        this.transpositionTable = this.initializeCache(tableBound, inBytes);
+        this.bestMoveHints = CacheBuilder.newBuilder()
+                .concurrencyLevel(CONCURRENCY_LEVEL)
+                .maximumSize(maxHints)
+                .build();
+        this.deepestSearch = new AtomicInteger();
+        this.nodes = new LongAdder();
+        this.tableLookups = new LongAdder();
+        this.tableMisses = new LongAdder();
+    }
+
+    /**
+     * An engine whose caches hold about BUDGET_BYTES of heap between them, whatever the size of the board.
+     * Results are weighed by their estimated size (see {@link Footprint}) and the least recently used go
+     * first once the budget is full. If the heap runs short all the same, the engine shrinks its caches
+     * (see {@link MemoryPressure}).
+     */
+    public static Engine withMemoryBudget(BoardEvaluator evaluator, int topNVariations, long budgetBytes) {
+        final long hintBytes = budgetBytes / HINT_SHARE;
+        final Engine engine = new Engine(evaluator, topNVariations, budgetBytes - hintBytes, true,
+                Math.max(1, hintBytes / Footprint.HINT_ENTRY));
+        MemoryPressure.register(engine);
+        return engine;
     }
 
-    private LoadingCache<EvaluationTask, EvaluatedGameState> initializeCache(int cacheSize) {
-        return CacheBuilder.newBuilder()
+    private LoadingCache<EvaluationTask, EvaluatedGameState> initializeCache(long bound, boolean inBytes) {
+        final CacheBuilder<EvaluationTask, EvaluatedGameState> builder = CacheBuilder.newBuilder()
                 .concurrencyLevel(CONCURRENCY_LEVEL)
-                .initialCapacity(cacheSize)
-                .maximumSize(cacheSize)
-                .build(new CacheLoader<>() {
+                .maximumWeight(bound)
+                .weigher((EvaluationTask task, EvaluatedGameState result) -> {
+                    // Called once for each result stored, and the removal listener once for each let go.
+                    final long bytes = Footprint.tableEntry(task, result);
+                    this.tableBytes.add(bytes);
+                    return inBytes ? (int) Math.min(bytes, Integer.MAX_VALUE) : 1;
+                })
+                .removalListener(removal ->
+                        this.tableBytes.add(-Footprint.tableEntry(removal.getKey(), removal.getValue())));
+        if (!inBytes) {
+            builder.initialCapacity((int) Math.min(bound, Integer.MAX_VALUE));
+        }
+        return builder.build(new CacheLoader<>() {
             @Override
             public EvaluatedGameState load(EvaluationTask key) throws Exception {
-                return Engine.this.evaluate(key.getGameState(), key.getDepth(), false);
+                // Store in canonical orientation; see lookup().
+                Engine.this.tableMisses.increment();
+                final GameState state = key.getGameState();
+                final EvaluatedGameState result = Engine.this.evaluateMissed(state, key.getDepth());
+                // Both stay in the table, and their moves are seldom wanted again; see Footprint.
+                state.forgetMoves();
+                result.getBestMove().forgetMoves();
+                return state.isCanonical() ? result : result.transposed();
             }
         });
     }
 
-    /**
-     * Sort by highest eval first.
-     */
-    private static Comparator<EvaluatedGameState> bestIsLeast(Player nowPlaying) {
-        return Comparator.comparingDouble(evaluatedGameState ->
-                -1 * evaluatedGameState.getEvaluation().getScores().get(nowPlaying));
-    }
-
     /**
      * Evaluate this position by playing each player's best moves for DEPTH many turns
      * afterwards. Cache on return.
@@ -61,6 +194,8 @@ public class Engine {
      * @return the evaluation of this state, and the best move that achieves that evaluation
      */
     public EvaluatedGameState evaluate(GameState state, int depth, boolean parallel) throws Exception {
+        AnytimeSearch.checkCurrent();
+        this.nodes.increment();
         final Player nowPlaying = state.nowPlaying();
         if (nowPlaying == Player.C && depth == 5) {
             System.out.printf("");
@@ -70,23 +205,45 @@ public class Engine {
             return new EvaluatedGameState(state, this.evaluator.evaluate(state));
         }
 
-        final List<EvaluatedGameState> candidates = getBestShallowEvaluatedNextMoves(state, nowPlaying);
-        final List<Evaluation> deepEvaluations = (parallel ? candidates.parallelStream() : candidates.stream())
-                .map(egs -> {
-                    try {
-                        return transpositionTable.get(new EvaluationTask(egs.getBestMove(), depth - 1));
-                    } catch (ExecutionException e) {
-                        throw new RuntimeException(e);
-                    }
-                })
-                .map(EvaluatedGameState::getEvaluation)
-                .collect(Collectors.toList());
+        if (this.endgameSolver != null && this.endgameSolver.applies(state)) {
+            return this.endgameSolver.solve(state);
+        }
 
+        if (this.duoSearch != null && this.duoSearch.applies(state)) {
+            return this.duoSearch.search(state, depth);
+        }
+
+        if (this.openingBook != null) {
+            final Optional<EvaluatedGameState> bookMove = this.openingBook.lookup(state, depth);
+            if (bookMove.isPresent()) {
+                return bookMove.get();
+            }
+        }
+
+        this.deepestSearch.accumulateAndGet(depth, Math::max);
+        final List<EvaluatedGameState> candidates = getBestShallowEvaluatedNextMoves(state, nowPlaying, depth);
+        final int[] fullDepths = new int[candidates.size()];
+        final int[] depths = new int[candidates.size()];
+        if (this.selectiveDepth == null) {
+            Arrays.fill(fullDepths, depth - 1);
+            Arrays.fill(depths, depth - 1);
+        } else {
+            this.selectiveDepth.assign(state, depth, candidates, this.hint(state), fullDepths, depths);
+        }
+        final List<Evaluation> deepEvaluations = this.searchCandidates(candidates, depths, parallel);
+        if (this.selectiveDepth != null) {
+            this.researchCompetitive(candidates, nowPlaying, fullDepths, depths, deepEvaluations, parallel);
+        }
+
+        // The first move is never reduced.
         GameState bestMove = candidates.get(0).getBestMove();
         Evaluation evalOfBestMove = deepEvaluations.get(0);
         double bestEval = evalOfBestMove.getScores().get(nowPlaying);
         for (int i = 1; i < candidates.size(); i++) {
             EvaluatedGameState candidate = candidates.get(i);
+            if (depths[i] < fullDepths[i]) {
+                continue;
+            }
             double eval = deepEvaluations.get(i).getScores().get(nowPlaying);
             if (eval > bestEval) {
                 bestEval = eval;
@@ -95,25 +252,328 @@ public class Engine {
             }
         }
 
+        this.recordHint(state, bestMove.getLastMove());
         return new EvaluatedGameState(bestMove, evalOfBestMove);
     }
 
-    private List<EvaluatedGameState> getBestShallowEvaluatedNextMoves(GameState state, Player nowPlaying) {
+    /**
+     * Look up each of CANDIDATES to the matching one of DEPTHS.
+     */
+    private List<Evaluation> searchCandidates(List<EvaluatedGameState> candidates, int[] depths, boolean parallel) {
+        final AnytimeSearch search = AnytimeSearch.current();
+        final List<Integer> indices = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            indices.add(i);
+        }
+        return (parallel ? indices.parallelStream() : indices.stream())
+                .map(i -> AnytimeSearch.within(search,
+                        () -> this.lookup(candidates.get(i).getBestMove(), depths[i])))
+                .map(EvaluatedGameState::getEvaluation)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Search the reduced moves that came out within the margin of the best fully searched move again at full
+     * depth, updating DEPTHS and EVALUATIONS to match. The rest stay reduced and are out of the running.
+     *
+     * Reduced moves are measured against the best move searched to their own depth, not its full depth: with
+     * more than two players a search a ply shorter ends on a different player's move, and scores shift with
+     * whose move it was.
+     */
+    private void researchCompetitive(List<EvaluatedGameState> candidates, Player nowPlaying, int[] fullDepths,
+                                     int[] depths, List<Evaluation> evaluations, boolean parallel) {
+        int best = -1;
+        int reducedDepth = -1;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (depths[i] < fullDepths[i]) {
+                reducedDepth = depths[i];
+            } else if (best < 0 || evaluations.get(i).getScores().get(nowPlaying)
+                    > evaluations.get(best).getScores().get(nowPlaying)) {
+                best = i;
+            }
+        }
+        if (reducedDepth < 0) {
+            return;
+        }
+        final double bar = this.lookupExactly(candidates.get(best).getBestMove(), reducedDepth)
+                .getEvaluation().getScores().get(nowPlaying) - this.selectiveDepth.researchMargin;
+
+        final List<EvaluatedGameState> competitive = new ArrayList<>();
+        final List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (depths[i] < fullDepths[i] && evaluations.get(i).getScores().get(nowPlaying) > bar) {
+                competitive.add(candidates.get(i));
+                indices.add(i);
+            }
+        }
+        final int[] researchDepths = new int[indices.size()];
+        for (int k = 0; k < researchDepths.length; k++) {
+            researchDepths[k] = fullDepths[indices.get(k)];
+        }
+        final List<Evaluation> researched = this.searchCandidates(competitive, researchDepths, parallel);
+        for (int k = 0; k < researchDepths.length; k++) {
+            depths[indices.get(k)] = researchDepths[k];
+            evaluations.set(indices.get(k), researched.get(k));
+        }
+    }
+
+    /**
+     * Evaluate a position that missed the in-memory table, going to the persistent tier if there is one.
+     */
+    private EvaluatedGameState evaluateMissed(GameState state, int depth) throws Exception {
+        if (this.persistentTable == null) {
+            return this.evaluate(state, depth, false);
+        }
+        final Optional<EvaluatedGameState> stored = this.persistentTable.lookup(state, depth);
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+        final EvaluatedGameState result = this.evaluate(state, depth, false);
+        this.persistentTable.store(state, depth, result);
+        return result;
+    }
+
+    /**
+     * Evaluate through the transposition table, settling for a deeper result if there is one (e.g. from
+     * the search before last, when this position was a few plies further from the root). Entries are shared
+     * between a position and its transpose, so the result is mapped back if it was stored in the other
+     * orientation.
+     */
+    EvaluatedGameState lookup(GameState state, int depth) {
+        final EvaluatedGameState canonical = this.deeperResult(state, depth);
+        if (canonical != null) {
+            this.tableLookups.increment();
+            return state.isCanonical() ? canonical : canonical.transposed();
+        }
+        return this.lookupExactly(state, depth);
+    }
+
+    /**
+     * {@link #lookup}, but only a search to exactly DEPTH will do.
+     */
+    private EvaluatedGameState lookupExactly(GameState state, int depth) {
+        this.tableLookups.increment();
+        EvaluatedGameState canonical = null;
+        while (canonical == null) {
+            try {
+                canonical = transpositionTable.get(new EvaluationTask(state, depth));
+                if (this.tableBytes.sum() > this.tableByteLimit.get()) {
+                    this.trim();
+                }
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e);
+            } catch (UncheckedExecutionException e) {
+                if (!(e.getCause() instanceof AnytimeSearch.Abandoned)) {
+                    throw e;
+                }
+                // Either our own search was stopped, or we were waiting on an entry that a stopped search
+                // was filling in. In the second case, fill it in ourselves.
+                AnytimeSearch.checkCurrent();
+            }
+        }
+        return state.isCanonical() ? canonical : canonical.transposed();
+    }
+
+    /**
+     * @return the deepest stored result for STATE that is deeper than DEPTH (in canonical orientation), or
+     *  null if there is none
+     */
+    private EvaluatedGameState deeperResult(GameState state, int depth) {
+        for (int deeper = this.deepestSearch.get(); deeper > depth; deeper--) {
+            final EvaluatedGameState result = this.transpositionTable.getIfPresent(new EvaluationTask(state, deeper));
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the table's result for STATE searched to DEPTH or deeper, without searching on a miss
+     */
+    public Optional<EvaluatedGameState> cachedResult(GameState state, int depth) {
+        EvaluatedGameState canonical = this.deeperResult(state, depth - 1);
+        if (canonical == null) {
+            return Optional.empty();
+        }
+        return Optional.of(state.isCanonical() ? canonical : canonical.transposed());
+    }
+
+    /**
+     * Put a result found elsewhere, e.g. by another process, in the table.
+     */
+    public void storeResult(GameState state, int depth, EvaluatedGameState result) {
+        this.deepestSearch.accumulateAndGet(depth, Math::max);
+        this.transpositionTable.put(new EvaluationTask(state, depth), state.isCanonical() ? result : result.transposed());
+    }
+
+    /**
+     * @return positions searched so far
+     */
+    public long nodeCount() {
+        return this.nodes.sum();
+    }
+
+    /**
+     * @return the fraction of transposition table lookups so far that found a result, 0 if there were none
+     */
+    public double tableHitRate() {
+        final long lookups = this.tableLookups.sum();
+        return lookups == 0 ? 0 : 1 - (double) this.tableMisses.sum() / lookups;
+    }
+
+    /**
+     * @return estimated bytes held by the transposition table and the best move hints
+     */
+    public long memoryUsage() {
+        return this.tableBytes.sum() + this.bestMoveHints.size() * Footprint.HINT_ENTRY;
+    }
+
+    /**
+     * Give memory back: evict about half the transposition table, and half the hints. The table is kept to
+     * that size until it has gone LIMIT_RECOVERY_NANOS without shrinking again, and then let grow a little
+     * at a time. Called by itself when the heap is close to full even after a collection (see
+     * {@link MemoryPressure}), and safe to call at any time, even mid-search. Entries go in no particular
+     * order.
+     */
+    public void shrink() {
+        this.tableByteLimit.accumulateAndGet(this.tableBytes.sum() / 2, Math::min);
+        this.limitChanged.set(System.nanoTime());
+        this.trim();
+        final Iterator<Long> hints = this.bestMoveHints.asMap().keySet().iterator();
+        for (long n = this.bestMoveHints.size() / 2; n > 0 && hints.hasNext(); n--) {
+            hints.next();
+            hints.remove();
+        }
+    }
+
+    /**
+     * Evict results until the table is back under tableByteLimit, unless it is time to raise the limit.
+     */
+    private void trim() {
+        final long changed = this.limitChanged.get();
+        final long now = System.nanoTime();
+        if (now - changed > LIMIT_RECOVERY_NANOS && this.limitChanged.compareAndSet(changed, now)) {
+            this.tableByteLimit.getAndUpdate(limit -> limit > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : 2 * limit);
+        }
+        final Iterator<EvaluationTask> tasks = this.transpositionTable.asMap().keySet().iterator();
+        while (this.tableBytes.sum() > this.tableByteLimit.get() && tasks.hasNext()) {
+            tasks.next();
+            tasks.remove();
+        }
+    }
+
+    void recordHint(GameState state, int bestMove) {
+        if (bestMove != Move.NONE) {
+            this.bestMoveHints.put(state.canonicalHash(), state.isCanonical() ? bestMove : Move.transposed(bestMove));
+        }
+    }
+
+    /**
+     * @return the best move from the last search of STATE, packed, or Move.NONE if there is none
+     */
+    int hint(GameState state) {
+        final Integer canonical = this.bestMoveHints.getIfPresent(state.canonicalHash());
+        if (canonical == null) {
+            return Move.NONE;
+        }
+        return state.isCanonical() ? canonical : Move.transposed(canonical);
+    }
+
+    /**
+     * Search STATE in the background, a ply deeper at a time up to MAX_DEPTH, reporting each finished depth
+     * to ON_IMPROVEMENT (on the searching thread). See {@link AnytimeSearch}.
+     */
+    public AnytimeSearch searchAsync(GameState state, int maxDepth, boolean parallel, Executor executor,
+                                     Consumer<EvaluatedGameState> onImprovement) {
+        return AnytimeSearch.start(this, state, maxDepth, parallel, executor, onImprovement);
+    }
+
+    /**
+     * @return a way to search ahead with this engine while other players are to move
+     * @param breadth replies to guess for each opponent
+     */
+    public Ponderer ponderer(int breadth, int nThreads) {
+        return new Ponderer(this, breadth, nThreads);
+    }
+
+    /**
+     * @return the moves this engine would search from STATE when searching DEPTH plies from it, best first by
+     *  shallow evaluation (except that the best move from the last search of STATE, if any, is always among
+     *  them)
+     */
+    public List<GameState> candidateMoves(GameState state, int depth) {
+        return getBestShallowEvaluatedNextMoves(state, state.nowPlaying(), depth).stream()
+                .map(EvaluatedGameState::getBestMove)
+                .collect(Collectors.toList());
+    }
+
+    private List<EvaluatedGameState> getBestShallowEvaluatedNextMoves(GameState state, Player nowPlaying,
+                                                                      int depth) {
         // Enumerate the possible moves of the next player.
         final List<GameState> possibleMoves = state.possibleMoves();
-        // Shallow-evaluate them and store them in a heap.
-        final Queue<EvaluatedGameState> shallowEvaluatedNextMoves =
-                new PriorityQueue<>(bestIsLeast(nowPlaying));
-        for (GameState child : possibleMoves) {
-            shallowEvaluatedNextMoves.offer(new EvaluatedGameState(child, this.evaluator.evaluate(child)));
+        // Shallow-evaluate them all at once.
+        final int nMoves = possibleMoves.size();
+        final double[] scores = new double[BoardEvaluator.N_SCORE_ROWS * nMoves];
+        this.evaluator.evaluateChildren(state, possibleMoves, scores);
+
+        // Only return the best, kept sorted by insertion. Ties go to the earlier move.
+        final int offset = nowPlaying.ordinal() * nMoves;
+        final int beam = this.adaptiveBeam == null ? this.topNVariations : this.adaptiveBeam.maxWidth;
+        final int[] top = new int[Math.min(beam, nMoves)];
+        int nTop = 0;
+        for (int i = 0; i < nMoves && top.length > 0; i++) {
+            final double score = scores[offset + i];
+            if (nTop == top.length && score <= scores[offset + top[nTop - 1]]) {
+                continue;
+            }
+            int k = nTop < top.length ? nTop++ : nTop - 1;
+            for (; k > 0 && scores[offset + top[k - 1]] < score; k--) {
+                top[k] = top[k - 1];
+            }
+            top[k] = i;
+        }
+        if (this.adaptiveBeam != null) {
+            final double[] topScores = new double[nTop];
+            for (int k = 0; k < nTop; k++) {
+                topScores[k] = scores[offset + top[k]];
+            }
+            nTop = this.adaptiveBeam.width(depth, topScores, nTop);
         }
 
-        // Only return the best
-        final List<EvaluatedGameState> topMoves = new ArrayList<>();
-        int variationsLeft = this.topNVariations;
-        while (!shallowEvaluatedNextMoves.isEmpty() && variationsLeft-- > 0) {
-            topMoves.add(shallowEvaluatedNextMoves.poll());
+        // Make room for last time's best move, if the shallow pass no longer rates it.
+        final int hint = this.hint(state);
+        if (hint != Move.NONE && nTop > 0) {
+            boolean hintInTop = false;
+            for (int k = 0; k < nTop; k++) {
+                hintInTop |= possibleMoves.get(top[k]).getLastMove() == hint;
+            }
+            for (int i = 0; i < nMoves && !hintInTop; i++) {
+                if (possibleMoves.get(i).getLastMove() == hint) {
+                    top[nTop - 1] = i;
+                    hintInTop = true;
+                }
+            }
+        }
+
+        final List<EvaluatedGameState> topMoves = new ArrayList<>(nTop);
+        for (int k = 0; k < nTop; k++) {
+            topMoves.add(new EvaluatedGameState(possibleMoves.get(top[k]), evaluationOf(scores, nMoves, top[k])));
         }
         return topMoves;
     }
+
+    /**
+     * @return child I's scores out of an {@link BoardEvaluator#evaluateChildren} array
+     */
+    private static Evaluation evaluationOf(double[] scores, int nChildren, int i) {
+        final EnumMap<Player, Double> evals = new EnumMap<>(Player.class);
+        for (Player player : Player.values()) {
+            final double score = scores[player.ordinal() * nChildren + i];
+            if (!Double.isNaN(score)) {
+                evals.put(player, score);
+            }
+        }
+        return new Evaluation(evals);
+    }
 }
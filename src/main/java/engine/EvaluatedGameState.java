@@ -6,4 +6,13 @@ import lombok.Value;
 public class EvaluatedGameState {
     final GameState bestMove;
     final Evaluation evaluation;
+
+    /**
+     * @return this result as seen from the transposed position: the mirrored best move, with the scores
+     *  handed to the relabelled players
+     */
+    public EvaluatedGameState transposed() {
+        return new EvaluatedGameState(this.bestMove.transposed(),
+                this.evaluation.relabelled(this.bestMove.getBoard()::transposedPlayer));
+    }
 }
@@ -5,6 +5,7 @@ import lombok.Value;
 import model.player.Player;
 
 import java.util.EnumMap;
+import java.util.function.UnaryOperator;
 
 @Value
 public class Evaluation {
@@ -20,4 +21,15 @@ public class Evaluation {
         }
         return new Evaluation(scores);
     }
+
+    /**
+     * @return the same scores, each given to the player RELABEL maps its owner to
+     */
+    public Evaluation relabelled(UnaryOperator<Player> relabel) {
+        EnumMap<Player, Double> scores = new EnumMap<>(Player.class);
+        for (Player player : this.getScores().keySet()) {
+            scores.put(relabel.apply(player), this.scores.get(player));
+        }
+        return new Evaluation(scores);
+    }
 }
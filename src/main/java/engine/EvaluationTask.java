@@ -2,8 +2,10 @@ package engine;
 
 import lombok.Value;
 
-import java.util.Objects;
-
+/**
+ * Transposition table key. Tasks are equal when their positions are the same or transposes of each other
+ * (see {@link GameState#transposed()}), so both hit the same entry, stored in the canonical orientation.
+ */
 @Value
 public class EvaluationTask {
     GameState gameState;
@@ -14,11 +16,21 @@ public class EvaluationTask {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         EvaluationTask that = (EvaluationTask) o;
-        return depth == that.depth && Objects.equals(gameState, that.gameState);
+        return depth == that.depth && gameState.canonicalHash() == that.gameState.canonicalHash()
+                && samePosition(gameState, that.gameState);
+    }
+
+    /**
+     * The hashes agree, but check the positions too: on a collision the table would hand back another
+     * position's result, best move and all. Only transposes if the hashes say they are each other's.
+     */
+    private static boolean samePosition(GameState a, GameState b) {
+        return (a.getPositionHash() == b.getPositionHash() && a.equals(b))
+                || (a.getPositionHash() == b.getTransposedHash() && a.equals(b.transposed()));
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(gameState, depth);
+        return 31 * Long.hashCode(gameState.canonicalHash()) + depth;
     }
 }
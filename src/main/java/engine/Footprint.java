@@ -0,0 +1,95 @@
+package engine;
+
+import model.board.Board;
+import model.player.Player;
+
+import java.util.Map;
+
+/**
+ * Rough heap sizes of what the engine keeps in its caches, for sizing them in bytes rather than entries.
+ * Assumes a 64-bit JVM with compressed references: 12-byte object headers, 16-byte array headers, 4-byte
+ * references, and everything padded to 8 bytes.
+ *
+ * Each object is counted in full even if something else shares it, e.g. a result's best move that is also
+ * the key of the next entry, so the sizes err on the high side. Move lists are left out: the engine has
+ * stored positions forget them (see {@link GameState#forgetMoves()}), since being held softly only gets
+ * them collected once the heap is nearly full.
+ */
+final class Footprint {
+    static final int OBJECT_HEADER = 12;
+    static final int ARRAY_HEADER = 16;
+    static final int REFERENCE = 4;
+    /**
+     * Boxed integers up to this are shared from a cache, larger ones are objects of their own.
+     */
+    private static final int LARGEST_CACHED_INTEGER = 127;
+    /**
+     * A cache entry and the table slot that points to it, with the access-order links that a size bound
+     * adds, and the value reference that a weight adds on top.
+     */
+    static final long TABLE_ENTRY_OVERHEAD = padded(OBJECT_HEADER + 5 * REFERENCE + 4 + 8)
+            + padded(OBJECT_HEADER + 2 * REFERENCE + 4) + REFERENCE;
+    /**
+     * A best move hint: entry overhead, boxed hash and boxed move.
+     */
+    static final long HINT_ENTRY = TABLE_ENTRY_OVERHEAD + padded(OBJECT_HEADER + 8) + padded(OBJECT_HEADER + 4);
+
+    private Footprint() {
+    }
+
+    static long padded(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    static long array(int length, int elementBytes) {
+        return padded(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    /**
+     * @return bytes of one transposition table entry, key and value
+     */
+    static long tableEntry(EvaluationTask task, EvaluatedGameState result) {
+        return TABLE_ENTRY_OVERHEAD + padded(OBJECT_HEADER + REFERENCE + 4) + of(task.getGameState()) + of(result);
+    }
+
+    static long of(EvaluatedGameState result) {
+        return padded(OBJECT_HEADER + 2 * REFERENCE) + of(result.getBestMove()) + of(result.getEvaluation());
+    }
+
+    static long of(Evaluation evaluation) {
+        return padded(OBJECT_HEADER + REFERENCE) + enumMap(evaluation.getScores().size(), 16);
+    }
+
+    static long of(GameState state) {
+        final int nPlayers = state.getNextPlayers().size();
+        final long nextPlayers = nPlayers == 0 ? 0
+                : nPlayers == 1 ? padded(OBJECT_HEADER + REFERENCE)
+                : padded(OBJECT_HEADER + REFERENCE + 8) + array(nPlayers, REFERENCE);
+        // Fields, then the (emptied) move list holder.
+        return padded(OBJECT_HEADER + 4 * REFERENCE + 2 * 4 + 2 * 8) + padded(OBJECT_HEADER + 2 * REFERENCE)
+                + of(state.getBoard()) + nextPlayers + array(state.unplayedPieces.length, 4);
+    }
+
+    /**
+     * The starting corners and player relabelling are shared by every board of a game, and left out.
+     */
+    static long of(Board board) {
+        long boxed = 0;
+        for (Map.Entry<Player, Integer> count : board.getNSquaresOccupied().entrySet()) {
+            if (count.getValue() > LARGEST_CACHED_INTEGER) {
+                boxed += padded(OBJECT_HEADER + 4);
+            }
+        }
+        return padded(OBJECT_HEADER + 2 * 4 + 4 * REFERENCE + 2 * 8 + 1)
+                + array(board.getNRows(), REFERENCE) + board.getNRows() * array(board.getNCols(), REFERENCE)
+                + enumMap(board.getNSquaresOccupied().size(), 0) + boxed;
+    }
+
+    /**
+     * @param boxedValueBytes bytes of each boxed value, 0 if they are shared
+     */
+    private static long enumMap(int size, int boxedValueBytes) {
+        return padded(OBJECT_HEADER + 5 * REFERENCE + 4) + array(Player.values().length, REFERENCE)
+                + (long) size * boxedValueBytes;
+    }
+}
@@ -2,39 +2,38 @@ package engine;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import game.StandardPieces;
+import game.PieceRegistry;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import model.board.Board;
+import model.board.PlacementMasks;
+import model.board.Zobrist;
 import model.piece.Piece;
 import model.player.Player;
 
+import java.lang.ref.SoftReference;
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 @AllArgsConstructor
 public class GameState {
-    static final Map<Piece, List<Piece>> dihedralOrbit = generateDihedralOrbits();
-
-    private static Map<Piece, List<Piece>> generateDihedralOrbits() {
-        ImmutableMap.Builder<Piece, List<Piece>> builder = ImmutableMap.builder();
-        for (Piece piece : StandardPieces.ALL_PIECES) {
-            List<Piece> orbit = new ArrayList<>(piece.getDihedralOrbit());
-            builder.put(piece, orbit);
-        }
-        return builder.build();
-    }
-
-    static final ImmutableList<Player> STARTING_ORDER =
+    public static final ImmutableList<Player> STARTING_ORDER =
             ImmutableList.of(Player.A, Player.B, Player.C, Player.D);
-    static final ImmutableMap<Player, ImmutableList<Piece>> ALL_PIECES_UNPLAYED =
-            ImmutableMap.<Player, ImmutableList<Piece>>builder()
-                    .put(Player.A, StandardPieces.ALL_PIECES)
-                    .put(Player.B, StandardPieces.ALL_PIECES)
-                    .put(Player.C, StandardPieces.ALL_PIECES)
-                    .put(Player.D, StandardPieces.ALL_PIECES)
-                    .build();
+    /**
+     * Unplayed piece masks at the start of the game, by player ordinal. NO_PLAYER has no pieces.
+     */
+    static final int[] ALL_PIECES_UNPLAYED = unplayedMasks(PieceRegistry.ALL_PIECES_MASK);
     public static final int N_ROWS = 20;
     public static final int N_COLS = 20;
+    /**
+     * The two-player variant: A and B on a 14x14 board, starting from points near the middle.
+     */
+    public static final ImmutableList<Player> DUO_STARTING_ORDER = ImmutableList.of(Player.A, Player.B);
+    public static final int DUO_SIZE = 14;
+    private static final ImmutableMap<Player, int[]> DUO_STARTING_POINTS =
+            ImmutableMap.of(Player.A, new int[]{4, 4}, Player.B, new int[]{9, 9});
+    private static final long TURN_ORDER_SALT = 0x7A9E_0000_0000_0000L;
+    private static final long UNPLAYED_SALT = 0x9B1A_0000_0000_0000L;
 
     /**
      * State of the board at this step.
@@ -44,53 +43,174 @@ public class GameState {
 
     /**
      * Players to move---this list cycles forward with each step.
-     * Player can be removed if they have no more moves.
+     * Players are removed as soon as they have no more moves, so (short of a position set up by hand) the
+     * player to move always has one.
      */
+    @Getter
     final ImmutableList<Player> nextPlayers;
 
     /**
-     * Pieces that each player has not yet played.
+     * Pieces that each player has not yet played, as bitmasks of piece IDs (see {@link PieceRegistry}),
+     * indexed by player ordinal. Never modified after construction.
      */
-    final ImmutableMap<Player, ImmutableList<Piece>> unplayedPieces;
+    final int[] unplayedPieces;
 
     /**
      * Number of turns that have passed.
      */
+    @Getter
     final int turnNumber;
 
+    /**
+     * 64-bit hash of everything equals() looks at, stable across processes. Maintained incrementally
+     * from the parent's hash so that hash-keyed lookups don't have to rescan the board.
+     */
+    @Getter
+    final long positionHash;
+
+    /**
+     * positionHash of {@link #transposed()}, maintained alongside positionHash so that the symmetric
+     * position can be recognised without building it. Only if the board tracks transposes (see
+     * {@link #trackingTransposes()}); otherwise just positionHash, so the position is its own canonical form.
+     */
+    @Getter
+    final long transposedHash;
+
+    /**
+     * The move that led to this position, packed (see {@link Move#pack}), or Move.NONE after a pass or
+     * for a position that was set up rather than played. Like turnNumber, not part of equals().
+     */
+    @Getter
+    final int lastMove;
+
+    /**
+     * Every player's legal placements, worked out on first use from the parent's if it still has them.
+     * Not part of equals().
+     */
+    private final MoveLists moveLists = new MoveLists();
+
+    /**
+     * Held softly: the lists are a few kilobytes a position, and positions live on in the transposition
+     * table long after their moves are needed. Lost lists are worked out again from scratch.
+     */
+    private static class MoveLists {
+        volatile SoftReference<LegalMoves> own;
+        /**
+         * The parent position's lists, shared by all its children, until this position has its own.
+         */
+        volatile SoftReference<LegalMoves> parent;
+    }
+
     public static GameState newGame() {
-        return new GameState(new Board(N_ROWS, N_COLS), STARTING_ORDER, ALL_PIECES_UNPLAYED, 0);
+        final Board board = new Board(N_ROWS, N_COLS);
+        return of(board, STARTING_ORDER, ALL_PIECES_UNPLAYED, 0);
     }
 
     /**
-     * Get the moves that can be made at this step.
-     * @return list of moves that the current player can take.
+     * Start of a two-player game on the 14x14 board (see {@link #DUO_STARTING_ORDER}).
      */
-    public List<GameState> possibleMoves() {
-        final List<GameState> moves = new ArrayList<>();
-        // Every location. TODO: cache locations that should not be searched
-        for (int i = 0; i < N_ROWS; i++) {
-            for (int j = 0; j < N_COLS; j++) {
-                final Player nowPlaying = this.nowPlaying();
-                final ImmutableList<Piece> pieces = this.unplayedPieces.get(nowPlaying);
-
-                if (pieces == null) {
-                    return ImmutableList.of(this.pass());
-                }
+    public static GameState newDuoGame() {
+        // With two players, a position can meet its transpose.
+        final Board board = new Board(DUO_SIZE, DUO_SIZE, DUO_STARTING_POINTS).trackingTransposes();
+        final int[] unplayedPieces = new int[Player.values().length];
+        for (Player player : DUO_STARTING_ORDER) {
+            unplayedPieces[player.ordinal()] = PieceRegistry.ALL_PIECES_MASK;
+        }
+        return of(board, DUO_STARTING_ORDER, unplayedPieces, 0);
+    }
+
+    /**
+     * Set up an arbitrary position, e.g. one read back from disk.
+     * @param unplayedPieces bitmask of unplayed piece IDs, by player ordinal
+     */
+    public static GameState of(Board board, List<Player> nextPlayers, int[] unplayedPieces, int turnNumber) {
+        final ImmutableList<Player> players = ImmutableList.copyOf(nextPlayers);
+        final long positionHash = hashOf(board, players, unplayedPieces);
+        return new GameState(board, players, unplayedPieces.clone(), turnNumber, positionHash,
+                board.isTracksTransposes() ? transposedHashOf(board, players, unplayedPieces) : positionHash,
+                Move.NONE);
+    }
 
-                for (int k = 0, getSize = pieces.size(); k < getSize; k++) {
-                    for (Piece transformedPiece : dihedralOrbit.get(pieces.get(k))) {
-                        final Optional<Board> moveAttempt =
-                                this.board.move(i, j, transformedPiece, nowPlaying);
-                        if (moveAttempt.isEmpty()) {
-                            continue;
-                        }
+    /**
+     * This position, but sharing transposition table entries with its transpose from here on (see
+     * {@link #canonicalHash()}). Only worth it once at most two players are left: transposing reverses the
+     * turn order, which with three or four players never comes up in play, so the position never meets its
+     * transpose.
+     */
+    public GameState trackingTransposes() {
+        return of(this.board.trackingTransposes(), this.nextPlayers, this.unplayedPieces, this.turnNumber);
+    }
 
-                        moves.add(this.createChildState(k, moveAttempt.get()));
-                    }
-                }
+    /**
+     * @return unplayed piece masks where every player (but NO_PLAYER) holds the pieces in MASK
+     */
+    static int[] unplayedMasks(int mask) {
+        final int[] unplayedPieces = new int[Player.values().length];
+        for (Player player : STARTING_ORDER) {
+            unplayedPieces[player.ordinal()] = mask;
+        }
+        return unplayedPieces;
+    }
+
+    /**
+     * Compute the position hash from scratch. Prefer updating the parent's hash where possible.
+     */
+    static long hashOf(Board board, List<Player> nextPlayers, int[] unplayedPieces) {
+        return hashOf(board.getZobristHash(), nextPlayers, unplayedPieces, UnaryOperator.identity());
+    }
+
+    static long transposedHashOf(Board board, List<Player> nextPlayers, int[] unplayedPieces) {
+        return hashOf(board.getTransposedZobristHash(), nextPlayers, unplayedPieces, board::transposedPlayer);
+    }
+
+    private static long hashOf(long boardHash, List<Player> nextPlayers, int[] unplayedPieces,
+                               UnaryOperator<Player> relabel) {
+        long positionHash = boardHash ^ turnOrderHash(nextPlayers, relabel);
+        for (Player player : Player.values()) {
+            for (int mask = unplayedPieces[player.ordinal()]; mask != 0; mask &= mask - 1) {
+                positionHash ^= unplayedPieceKey(relabel.apply(player), Integer.numberOfTrailingZeros(mask));
             }
         }
+        return positionHash;
+    }
+
+    private static long turnOrderHash(List<Player> nextPlayers, UnaryOperator<Player> relabel) {
+        long hash = 0L;
+        for (int i = 0; i < nextPlayers.size(); i++) {
+            hash ^= Zobrist.mix(TURN_ORDER_SALT + 8L * i + relabel.apply(nextPlayers.get(i)).ordinal());
+        }
+        return hash;
+    }
+
+    private static long unplayedPieceKey(Player player, int pieceId) {
+        return Zobrist.mix(UNPLAYED_SALT + 32L * player.ordinal() + pieceId);
+    }
+
+    /**
+     * @return bitmask of the piece IDs PLAYER has not yet played
+     */
+    public int unplayedPieces(Player player) {
+        return this.unplayedPieces[player.ordinal()];
+    }
+
+    /**
+     * Get the moves that can be made at this step.
+     * @return list of moves that the current player can take, by anchor cell and then orientation ID,
+     *  or just a pass if there are none.
+     */
+    public List<GameState> possibleMoves() {
+        final Player nowPlaying = this.nowPlaying();
+        final int nCols = this.board.getNCols();
+        final int[] keys = nowPlaying == Player.NO_PLAYER ? new int[0] : this.legalMoves().of(nowPlaying);
+        final List<GameState> moves = new ArrayList<>(keys.length);
+        for (int key : keys) {
+            final int orientationId = LegalMoves.orientationOf(key);
+            final int i = LegalMoves.cellOf(key) / nCols;
+            final int j = LegalMoves.cellOf(key) % nCols;
+            final Piece piece = PieceRegistry.orientedPiece(orientationId);
+            moves.add(this.createChildState(PieceRegistry.pieceOf(orientationId),
+                    this.board.boardAfterMove(i, j, piece, nowPlaying), Move.pack(orientationId, i, j)));
+        }
 
         if (moves.isEmpty()) {
             return ImmutableList.of(this.pass());
@@ -99,50 +219,233 @@ public class GameState {
         }
     }
 
-    private GameState pass() {
-        return new GameState(board,
-                nextPlayers.isEmpty() ? nextPlayers : nextPlayers.subList(1, nextPlayers.size()),
+    /**
+     * @return every player's legal placements here, from the parent's lists when they are still around
+     */
+    LegalMoves legalMoves() {
+        final SoftReference<LegalMoves> own = this.moveLists.own;
+        LegalMoves moves = own == null ? null : own.get();
+        if (moves != null) {
+            return moves;
+        }
+        final SoftReference<LegalMoves> parent = this.moveLists.parent;
+        final LegalMoves parentMoves = parent == null ? null : parent.get();
+        if (parentMoves == null) {
+            moves = LegalMoves.of(this.board, this.nextPlayers, this.unplayedPieces);
+        } else if (this.lastMove == Move.NONE) {
+            // A pass: nothing on the board changed.
+            moves = parentMoves;
+        } else {
+            // Not necessarily the back of the line: the move may have left the mover blocked.
+            final Piece piece = PieceRegistry.orientedPiece(Move.orientationOf(this.lastMove));
+            final Player mover = this.board.getSquare(Move.rowOf(this.lastMove) + piece.rowLocations.get(0),
+                    Move.columnOf(this.lastMove) + piece.colLocations.get(0));
+            moves = parentMoves.after(this.board, mover, this.lastMove, this.nextPlayers, this.unplayedPieces);
+        }
+        this.moveLists.own = new SoftReference<>(moves);
+        this.moveLists.parent = null;
+        return moves;
+    }
+
+    /**
+     * @return bitmask of the piece IDs PLAYER has not played and could still fit somewhere. The rest are dead:
+     *  the board has closed up around them for good. Empty for players out of the game.
+     */
+    public int livePieces(Player player) {
+        return this.legalMoves().livePieces(player);
+    }
+
+    /**
+     * @return true if the current player can place a piece, i.e. does not have to pass. Much cheaper than
+     *  generating their moves.
+     */
+    public boolean hasAnyMove() {
+        final Player nowPlaying = this.nowPlaying();
+        if (nowPlaying == Player.NO_PLAYER) {
+            return false;
+        }
+        final PlacementMasks masks = this.board.placementMasks(nowPlaying);
+        for (int pieces = this.unplayedPieces[nowPlaying.ordinal()]; pieces != 0; pieces &= pieces - 1) {
+            for (int orientationId : PieceRegistry.orientations(Integer.numberOfTrailingZeros(pieces))) {
+                if (masks.anyLegal(PieceRegistry.orientedPiece(orientationId))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Play a single move, e.g. when replaying a recorded game.
+     * @param packedMove see {@link Move#pack}
+     * @return the resulting position, or empty if the move is illegal here
+     */
+    public Optional<GameState> play(int packedMove) {
+        final Player nowPlaying = this.nowPlaying();
+        final int orientationId = Move.orientationOf(packedMove);
+        final int pieceId = PieceRegistry.pieceOf(orientationId);
+        if ((this.unplayedPieces[nowPlaying.ordinal()] & (1 << pieceId)) == 0) {
+            return Optional.empty();
+        }
+        return this.board
+                .move(Move.rowOf(packedMove), Move.columnOf(packedMove),
+                        PieceRegistry.orientedPiece(orientationId), nowPlaying)
+                .map(board -> this.createChildState(pieceId, board, packedMove));
+    }
+
+    /**
+     * The current player gives up and leaves the game. Only legal when they have no moves.
+     */
+    public GameState pass() {
+        final ImmutableList<Player> nextPlayers =
+                this.nextPlayers.isEmpty() ? this.nextPlayers : this.nextPlayers.subList(1, this.nextPlayers.size());
+        final GameState passed = new GameState(board,
+                nextPlayers,
                 unplayedPieces,
-                turnNumber + 1);
+                turnNumber + 1,
+                positionHash ^ turnOrderHash(this.nextPlayers, UnaryOperator.identity())
+                        ^ turnOrderHash(nextPlayers, UnaryOperator.identity()),
+                this.transposedHashWith(nextPlayers),
+                Move.NONE);
+        passed.moveLists.parent = this.moveLists.own;
+        return passed;
+    }
+
+    /**
+     * The same position, but with every player outside PLAYERS already out of the game. Used to solve
+     * independent regions of an endgame separately.
+     */
+    GameState restrictedTo(Set<Player> players) {
+        final ImmutableList.Builder<Player> nextPlayersBuilder = ImmutableList.builder();
+        for (Player player : this.nextPlayers) {
+            if (players.contains(player)) {
+                nextPlayersBuilder.add(player);
+            }
+        }
+        final ImmutableList<Player> nextPlayers = nextPlayersBuilder.build();
+        return new GameState(board, nextPlayers, unplayedPieces, turnNumber,
+                positionHash ^ turnOrderHash(this.nextPlayers, UnaryOperator.identity())
+                        ^ turnOrderHash(nextPlayers, UnaryOperator.identity()),
+                this.transposedHashWith(nextPlayers),
+                lastMove);
+    }
+
+    /**
+     * @return transposedHash of this position with NEXT_PLAYERS to move instead, or if the board doesn't
+     *  track transposes, positionHash
+     */
+    private long transposedHashWith(List<Player> nextPlayers) {
+        if (!this.board.isTracksTransposes()) {
+            return this.positionHash ^ turnOrderHash(this.nextPlayers, UnaryOperator.identity())
+                    ^ turnOrderHash(nextPlayers, UnaryOperator.identity());
+        }
+        return this.transposedHash ^ turnOrderHash(this.nextPlayers, board::transposedPlayer)
+                ^ turnOrderHash(nextPlayers, board::transposedPlayer);
+    }
+
+    /**
+     * The mirror image of this position across the board's main diagonal, with players relabelled to match
+     * (see {@link Board#transposed()}). It has the same value as this position to the relabelled players.
+     */
+    public GameState transposed() {
+        final ImmutableList.Builder<Player> nextPlayersBuilder = ImmutableList.builder();
+        for (Player player : this.nextPlayers) {
+            nextPlayersBuilder.add(this.board.transposedPlayer(player));
+        }
+        final int[] unplayedPieces = new int[this.unplayedPieces.length];
+        for (Player player : Player.values()) {
+            unplayedPieces[this.board.transposedPlayer(player).ordinal()] = this.unplayedPieces[player.ordinal()];
+        }
+        final ImmutableList<Player> nextPlayers = nextPlayersBuilder.build();
+        if (!this.board.isTracksTransposes()) {
+            final Board board = this.board.transposed();
+            final long positionHash = hashOf(board, nextPlayers, unplayedPieces);
+            return new GameState(board, nextPlayers, unplayedPieces, turnNumber, positionHash, positionHash,
+                    Move.transposed(this.lastMove));
+        }
+        return new GameState(board.transposed(), nextPlayers, unplayedPieces,
+                turnNumber, transposedHash, positionHash, Move.transposed(this.lastMove));
+    }
+
+    /**
+     * Positions and their transposes share a canonical hash, so they can share transposition table entries.
+     */
+    public long canonicalHash() {
+        return Math.min(this.positionHash, this.transposedHash);
+    }
+
+    /**
+     * @return true if this orientation is the one whose results get stored under the canonical hash
+     */
+    public boolean isCanonical() {
+        return this.positionHash <= this.transposedHash;
+    }
+
+    /**
+     * Finished game with this board and these unplayed pieces.
+     */
+    static GameState finished(Board board, int[] unplayedPieces, int turnNumber) {
+        return of(board, ImmutableList.of(), unplayedPieces, turnNumber);
     }
 
     public boolean isOver() {
         return this.nextPlayers.isEmpty();
     }
 
-    private GameState createChildState(int pieceMoved, Board resultingBoard) {
+    /**
+     * @param pieceMoved ID of the piece that was just placed
+     * @param resultingBoard board after placing it
+     * @param packedMove the placement, see {@link Move#pack}
+     */
+    private GameState createChildState(int pieceMoved, Board resultingBoard, int packedMove) {
         // New Board
         final Board board = resultingBoard;
 
-        // New NextPlayers
-        final ImmutableList.Builder<Player> nextPlayersBuilder = ImmutableList.builder();
-        for (int i = 1; i < this.nextPlayers.size(); i++) {
-            nextPlayersBuilder.add(this.nextPlayers.get(i));
-        }
-        final ImmutableList<Player> nextPlayers = nextPlayersBuilder.add(this.nowPlaying()).build();
+        // New UnplayedPieces: the current player "loses" a piece.
+        final int[] unplayedPieces = this.unplayedPieces.clone();
+        unplayedPieces[this.nowPlaying().ordinal()] &= ~(1 << pieceMoved);
 
-        // New UnplayedPieces
-        final ImmutableMap.Builder<Player, ImmutableList<Piece>> unplayedPiecesBuilder = ImmutableMap.builder();
-        for (Player p : STARTING_ORDER) {
-            if (p != nowPlaying()) {
-                unplayedPiecesBuilder.put(p, this.unplayedPieces.get(p));
-            }
-        }
-        // This list will "lose" a piece.
-        final ImmutableList.Builder<Piece> nowPlayingUnplayed = ImmutableList.builder();
-        final List<Piece> currentUnplayedPieces = this.unplayedPieces.get(this.nowPlaying());
-        for (int i = 0; i < currentUnplayedPieces.size(); i++) {
-            if (i != pieceMoved) {
-                nowPlayingUnplayed.add(currentUnplayedPieces.get(i));
+        // New NextPlayers, without anyone the move leaves with nothing to play: they'd only ever pass.
+        final int blocked = this.legalMoves()
+                .blockedAfter(board, this.nowPlaying(), packedMove, this.nextPlayers, unplayedPieces);
+        final ImmutableList.Builder<Player> nextPlayersBuilder = ImmutableList.builder();
+        for (int i = 1; i <= this.nextPlayers.size(); i++) {
+            final Player player = this.nextPlayers.get(i % this.nextPlayers.size());
+            if ((blocked & 1 << player.ordinal()) == 0) {
+                nextPlayersBuilder.add(player);
             }
         }
-        final ImmutableMap<Player, ImmutableList<Piece>> unplayedPieces =
-                unplayedPiecesBuilder.put(this.nowPlaying(), nowPlayingUnplayed.build()).build();
+        final ImmutableList<Player> nextPlayers = nextPlayersBuilder.build();
 
         // New turnNumber
         final int turnNumber = this.turnNumber + 1;
 
-        return new GameState(board, nextPlayers, unplayedPieces, turnNumber);
+        // New positionHash
+        final long positionHash = this.positionHash
+                ^ this.board.getZobristHash() ^ board.getZobristHash()
+                ^ turnOrderHash(this.nextPlayers, UnaryOperator.identity())
+                ^ turnOrderHash(nextPlayers, UnaryOperator.identity())
+                ^ unplayedPieceKey(this.nowPlaying(), pieceMoved);
+        final long transposedHash = !board.isTracksTransposes() ? positionHash : this.transposedHash
+                ^ this.board.getTransposedZobristHash() ^ board.getTransposedZobristHash()
+                ^ turnOrderHash(this.nextPlayers, board::transposedPlayer)
+                ^ turnOrderHash(nextPlayers, board::transposedPlayer)
+                ^ unplayedPieceKey(board.transposedPlayer(this.nowPlaying()), pieceMoved);
+
+        final GameState child = new GameState(board, nextPlayers, unplayedPieces, turnNumber, positionHash,
+                transposedHash, packedMove);
+        child.moveLists.parent = this.moveLists.own;
+        return child;
+    }
+
+    /**
+     * Let go of this position's move lists and its parent's, e.g. once it has been searched and is kept
+     * only for its result. Held softly or not, lists that are still reachable stay until the heap is nearly
+     * full. If they are wanted after all, they are worked out again from scratch.
+     */
+    void forgetMoves() {
+        this.moveLists.own = null;
+        this.moveLists.parent = null;
     }
 
     public Player nowPlaying() {
@@ -169,11 +472,11 @@ public class GameState {
         GameState gameState = (GameState) o;
         return Objects.equals(board, gameState.board)
                 && Objects.equals(nextPlayers, gameState.nextPlayers)
-                && Objects.equals(unplayedPieces, gameState.unplayedPieces);
+                && Arrays.equals(unplayedPieces, gameState.unplayedPieces);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(board, nextPlayers, unplayedPieces);
+        return Long.hashCode(positionHash);
     }
 }
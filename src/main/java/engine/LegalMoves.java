@@ -0,0 +1,443 @@
+package engine;
+
+import game.PieceRegistry;
+import model.board.Board;
+import model.board.PlacementMasks;
+import model.piece.Piece;
+import model.player.Player;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every player's legal placements in one position, kept up to date from the parent position's rather than
+ * worked out from scratch. A placement only takes away other players' placements that cover the cells it
+ * fills, and only changes the mover's own around the piece, so a child's lists are the parent's filtered,
+ * plus the mover's new placements at the corners the piece made.
+ *
+ * Each list is sorted keys, anchor cell << 7 | orientation ID: cell by cell, then by orientation, the same
+ * order {@link GameState#possibleMoves()} has always produced. Never modified after construction, so a
+ * parent's lists stay valid for all its children.
+ *
+ * Alongside the lists go the pieces each player could still ever play. Late in the game most unplayed
+ * pieces no longer fit anywhere, and since cells only ever close they never will again, so they are
+ * dropped for good rather than tried at every new corner.
+ */
+final class LegalMoves {
+    private static final int ORIENTATION_BITS = 7;
+    private static final int ORIENTATION_MASK = (1 << ORIENTATION_BITS) - 1;
+    /**
+     * Most rows or columns any piece spans.
+     */
+    private static final int MAX_PIECE_SPAN = 5;
+    /**
+     * {@link #offsets} by board width.
+     */
+    private static final Map<Integer, int[][]> OFFSETS = new ConcurrentHashMap<>();
+
+    static {
+        if (PieceRegistry.N_ORIENTATIONS > 1 << ORIENTATION_BITS) {
+            throw new AssertionError("Orientation IDs don't fit in a key");
+        }
+    }
+
+    private final int nRows;
+    private final int nCols;
+    /**
+     * Cell offsets of each orientation's squares from its anchor, on a board nCols wide.
+     */
+    private final int[][] offsets;
+    /**
+     * By player ordinal. Empty for players out of the game.
+     */
+    private final int[][] keys;
+    /**
+     * Live pieces (see {@link #livePieces}) by player ordinal.
+     */
+    private final int[] live;
+    /**
+     * For each live piece, by player ordinal and then piece ID, a key where it fits. While none of its
+     * cells close the piece is still alive, and most moves are nowhere near it, so only pieces whose
+     * witness was just covered need looking for again.
+     */
+    private final int[][] witnesses;
+
+    private LegalMoves(int nRows, int nCols, int[][] offsets, int[][] keys, int[] live, int[][] witnesses) {
+        this.nRows = nRows;
+        this.nCols = nCols;
+        this.offsets = offsets;
+        this.keys = keys;
+        this.live = live;
+        this.witnesses = witnesses;
+    }
+
+    /**
+     * Work out the lists from scratch.
+     */
+    static LegalMoves of(Board board, List<Player> players, int[] unplayedPieces) {
+        final int[][] keys = new int[Player.values().length][0];
+        final int[] live = new int[keys.length];
+        final int[][] witnesses = noWitnesses();
+        for (Player player : players) {
+            final PlacementMasks masks = board.placementMasks(player);
+            live[player.ordinal()] = findWitnesses(masks, unplayedPieces[player.ordinal()],
+                    witnesses[player.ordinal()]);
+            int[] playerKeys = new int[64];
+            int n = 0;
+            for (int pieces = live[player.ordinal()]; pieces != 0; pieces &= pieces - 1) {
+                for (int orientationId : PieceRegistry.orientations(Integer.numberOfTrailingZeros(pieces))) {
+                    final long[] anchors = masks.legalAnchors(PieceRegistry.orientedPiece(orientationId));
+                    for (int w = 0; w < anchors.length; w++) {
+                        for (long cells = anchors[w]; cells != 0; cells &= cells - 1) {
+                            if (n == playerKeys.length) {
+                                playerKeys = Arrays.copyOf(playerKeys, 2 * n);
+                            }
+                            final int cell = (w << 6) + Long.numberOfTrailingZeros(cells);
+                            playerKeys[n++] = cell << ORIENTATION_BITS | orientationId;
+                        }
+                    }
+                }
+            }
+            keys[player.ordinal()] = Arrays.copyOf(playerKeys, n);
+            Arrays.sort(keys[player.ordinal()]);
+        }
+        return new LegalMoves(board.getNRows(), board.getNCols(), offsetsFor(board.getNCols()), keys, live,
+                witnesses);
+    }
+
+    /**
+     * @param board the board after MOVER played PACKED_MOVE
+     * @param players the players still in the game after the move
+     * @param unplayedPieces after the move
+     * @return the lists after the move
+     */
+    LegalMoves after(Board board, Player mover, int packedMove, List<Player> players, int[] unplayedPieces) {
+        final long[] placed = this.cellsOf(packedMove, false);
+        final long[] closedToMover = this.cellsOf(packedMove, true);
+
+        final int[][] keys = new int[this.keys.length][0];
+        final int[] live = new int[this.live.length];
+        final int[][] witnesses = noWitnesses();
+        for (Player player : players) {
+            final int p = player.ordinal();
+            final long[] closed = player == mover ? closedToMover : placed;
+            keys[p] = this.filter(this.keys[p], closed, unplayedPieces[p]);
+
+            // Pieces whose spot was just taken have to find another or die.
+            live[p] = this.live[p] & unplayedPieces[p];
+            System.arraycopy(this.witnesses[p], 0, witnesses[p], 0, witnesses[p].length);
+            int lost = 0;
+            for (int pieces = live[p]; pieces != 0; pieces &= pieces - 1) {
+                final int pieceId = Integer.numberOfTrailingZeros(pieces);
+                final int witness = witnesses[p][pieceId];
+                if (this.covers(cellOf(witness), orientationOf(witness), closed)) {
+                    lost |= 1 << pieceId;
+                }
+            }
+            // Any placement still legal will do, and saves looking over the whole board.
+            for (int k = 0; k < keys[p].length && lost != 0; k++) {
+                final int pieceId = PieceRegistry.pieceOf(orientationOf(keys[p][k]));
+                if ((lost & 1 << pieceId) != 0) {
+                    witnesses[p][pieceId] = keys[p][k];
+                    lost &= ~(1 << pieceId);
+                }
+            }
+            if (lost != 0) {
+                live[p] &= ~lost | findWitnesses(board.placementMasks(player), lost, witnesses[p]);
+            }
+        }
+        if (players.contains(mover)) {
+            keys[mover.ordinal()] = merge(keys[mover.ordinal()],
+                    this.newCornerPlacements(board, mover, placed, live[mover.ordinal()], Integer.MAX_VALUE));
+        }
+        return new LegalMoves(this.nRows, this.nCols, this.offsets, keys, live, witnesses);
+    }
+
+    /**
+     * Which of PLAYERS would have no moves at all after MOVER played PACKED_MOVE, without working out the
+     * lists after it. Usually the player's first and last placements are too far apart for one move to take
+     * both, and otherwise one placement that survives the move settles it.
+     * @param board the board after the move
+     * @param players the players in the game before the move
+     * @param unplayedPieces after the move
+     * @return bitmask of the blocked players' ordinals
+     */
+    int blockedAfter(Board board, Player mover, int packedMove, List<Player> players, int[] unplayedPieces) {
+        long[] placed = null;
+        long[] closedToMover = null;
+        int blocked = 0;
+        for (Player player : players) {
+            final int p = player.ordinal();
+            if (this.farApart(this.keys[p], unplayedPieces[p])) {
+                continue;
+            }
+            if (placed == null) {
+                placed = this.cellsOf(packedMove, false);
+                closedToMover = this.cellsOf(packedMove, true);
+            }
+            if (this.anySurvives(this.keys[p], player == mover ? closedToMover : placed, unplayedPieces[p])) {
+                continue;
+            }
+            if (player == mover && this.newCornerPlacements(board, mover, placed, this.live[p] & unplayedPieces[p], 1)
+                    .length > 0) {
+                continue;
+            }
+            blocked |= 1 << p;
+        }
+        return blocked;
+    }
+
+    /**
+     * @return the list for PLAYER, see {@link #keys}
+     */
+    int[] of(Player player) {
+        return this.keys[player.ordinal()];
+    }
+
+    static int orientationOf(int key) {
+        return key & ORIENTATION_MASK;
+    }
+
+    static int cellOf(int key) {
+        return key >>> ORIENTATION_BITS;
+    }
+
+    /**
+     * @return bitmask of PLAYER's unplayed pieces that still fit somewhere on the board, ignoring whether
+     *  they would touch a corner. The rest can never be played again.
+     */
+    int livePieces(Player player) {
+        return this.live[player.ordinal()];
+    }
+
+    /**
+     * @return KEYS without placements of played pieces or placements covering a CLOSED cell
+     */
+    private int[] filter(int[] keys, long[] closed, int unplayed) {
+        final int[] kept = new int[keys.length];
+        int n = 0;
+        for (int key : keys) {
+            final int orientationId = orientationOf(key);
+            if ((unplayed & 1 << PieceRegistry.pieceOf(orientationId)) != 0
+                    && !this.covers(cellOf(key), orientationId, closed)) {
+                kept[n++] = key;
+            }
+        }
+        return n == keys.length ? keys : Arrays.copyOf(kept, n);
+    }
+
+    /**
+     * @return true if the first and last of KEYS (the top and bottom placements) are still playable, and so
+     *  many rows apart that no one move can take both: a piece spans at most 5 rows, and closes at most 7 to
+     *  its owner.
+     */
+    private boolean farApart(int[] keys, int unplayed) {
+        if (keys.length < 2) {
+            return false;
+        }
+        final int first = keys[0];
+        final int last = keys[keys.length - 1];
+        return cellOf(last) / this.nCols - cellOf(first) / this.nCols > MAX_PIECE_SPAN + 5
+                && (unplayed & 1 << PieceRegistry.pieceOf(orientationOf(first))) != 0
+                && (unplayed & 1 << PieceRegistry.pieceOf(orientationOf(last))) != 0;
+    }
+
+    private boolean anySurvives(int[] keys, long[] closed, int unplayed) {
+        for (int key : keys) {
+            final int orientationId = orientationOf(key);
+            if ((unplayed & 1 << PieceRegistry.pieceOf(orientationId)) != 0
+                    && !this.covers(cellOf(key), orientationId, closed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean covers(int anchor, int orientationId, long[] cells) {
+        for (int offset : this.offsets[orientationId]) {
+            final int cell = anchor + offset;
+            if ((cells[cell >>> 6] & 1L << cell) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return sorted keys of MOVER's placements of PIECES through the cells diagonal to the piece just PLACED,
+     *  some of which may have been legal before; only the first LIMIT found
+     */
+    private int[] newCornerPlacements(Board board, Player mover, long[] placed, int pieces, int limit) {
+        final long[] corners = new long[placed.length];
+        for (int w = 0; w < placed.length; w++) {
+            for (long bits = placed[w]; bits != 0; bits &= bits - 1) {
+                final int cell = (w << 6) + Long.numberOfTrailingZeros(bits);
+                final int r = cell / this.nCols;
+                final int c = cell % this.nCols;
+                for (int dr = -1; dr <= 1; dr += 2) {
+                    for (int dc = -1; dc <= 1; dc += 2) {
+                        final int cr = r + dr;
+                        final int cc = c + dc;
+                        if (cr >= 0 && cr < this.nRows && cc >= 0 && cc < this.nCols
+                                && board.isOpenFor(cr, cc, mover)) {
+                            set(corners, cr * this.nCols + cc);
+                        }
+                    }
+                }
+            }
+        }
+
+        int[] added = new int[64];
+        int n = 0;
+        for (int w = 0; w < corners.length; w++) {
+            for (long bits = corners[w]; bits != 0; bits &= bits - 1) {
+                final int corner = (w << 6) + Long.numberOfTrailingZeros(bits);
+                final int cr = corner / this.nCols;
+                final int cc = corner % this.nCols;
+                for (int left = pieces; left != 0; left &= left - 1) {
+                    for (int orientationId : PieceRegistry.orientations(Integer.numberOfTrailingZeros(left))) {
+                        // Each way of covering the corner with this orientation.
+                        final Piece piece = PieceRegistry.orientedPiece(orientationId);
+                        for (int k = 0; k < piece.nSquares; k++) {
+                            final int i = cr - piece.rowLocations.get(k);
+                            final int j = cc - piece.colLocations.get(k);
+                            if (!this.fits(board, i, j, piece, mover)) {
+                                continue;
+                            }
+                            if (n == added.length) {
+                                added = Arrays.copyOf(added, 2 * n);
+                            }
+                            added[n++] = (i * this.nCols + j) << ORIENTATION_BITS | orientationId;
+                            if (n == limit) {
+                                return sortedPrefix(added, n);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return sortedPrefix(added, n);
+    }
+
+    private static int[] sortedPrefix(int[] keys, int n) {
+        final int[] prefix = Arrays.copyOf(keys, n);
+        Arrays.sort(prefix);
+        return prefix;
+    }
+
+    private boolean fits(Board board, int i, int j, Piece piece, Player player) {
+        if (i < 0 || j < 0 || i + piece.nRows > this.nRows || j + piece.nCols > this.nCols) {
+            return false;
+        }
+        for (int k = 0; k < piece.nSquares; k++) {
+            if (!board.isOpenFor(i + piece.rowLocations.get(k), j + piece.colLocations.get(k), player)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the sorted union of two sorted arrays, B's duplicates dropped
+     */
+    private static int[] merge(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        final int[] merged = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            final int next = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+            if (n == 0 || merged[n - 1] != next) {
+                merged[n++] = next;
+            }
+        }
+        return Arrays.copyOf(merged, n);
+    }
+
+    /**
+     * @return the cells PACKED_MOVE fills, and if WITH_SIDES the cells next to them too
+     */
+    private long[] cellsOf(int packedMove, boolean withSides) {
+        final int anchor = Move.rowOf(packedMove) * this.nCols + Move.columnOf(packedMove);
+        final long[] cells = new long[(this.nRows * this.nCols + 63) >>> 6];
+        for (int offset : this.offsets[Move.orientationOf(packedMove)]) {
+            final int cell = anchor + offset;
+            set(cells, cell);
+            if (!withSides) {
+                continue;
+            }
+            final int r = cell / this.nCols;
+            final int c = cell % this.nCols;
+            if (r > 0) {
+                set(cells, cell - this.nCols);
+            }
+            if (r + 1 < this.nRows) {
+                set(cells, cell + this.nCols);
+            }
+            if (c > 0) {
+                set(cells, cell - 1);
+            }
+            if (c + 1 < this.nCols) {
+                set(cells, cell + 1);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Record in WITNESSES, by piece ID, a spot where each of PIECES fits.
+     * @return the pieces that fit somewhere
+     */
+    private static int findWitnesses(PlacementMasks masks, int pieces, int[] witnesses) {
+        int found = 0;
+        for (int left = pieces; left != 0; left &= left - 1) {
+            final int pieceId = Integer.numberOfTrailingZeros(left);
+            witnesses[pieceId] = -1;
+            for (int orientationId : PieceRegistry.orientations(pieceId)) {
+                final long[] anchors = masks.fittingAnchors(PieceRegistry.orientedPiece(orientationId));
+                for (int w = 0; w < anchors.length && witnesses[pieceId] < 0; w++) {
+                    if (anchors[w] != 0) {
+                        final int cell = (w << 6) + Long.numberOfTrailingZeros(anchors[w]);
+                        witnesses[pieceId] = cell << ORIENTATION_BITS | orientationId;
+                    }
+                }
+                if (witnesses[pieceId] >= 0) {
+                    found |= 1 << pieceId;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int[][] noWitnesses() {
+        final int[][] witnesses = new int[Player.values().length][PieceRegistry.N_PIECES];
+        for (int[] playerWitnesses : witnesses) {
+            Arrays.fill(playerWitnesses, -1);
+        }
+        return witnesses;
+    }
+
+    private static void set(long[] mask, int cell) {
+        mask[cell >>> 6] |= 1L << cell;
+    }
+
+    private static int[][] offsetsFor(int nCols) {
+        return OFFSETS.computeIfAbsent(nCols, LegalMoves::computeOffsets);
+    }
+
+    private static int[][] computeOffsets(int nCols) {
+        final int[][] offsets = new int[PieceRegistry.N_ORIENTATIONS][];
+        for (int orientationId = 0; orientationId < offsets.length; orientationId++) {
+            final Piece piece = PieceRegistry.orientedPiece(orientationId);
+            offsets[orientationId] = new int[piece.nSquares];
+            for (int k = 0; k < piece.nSquares; k++) {
+                offsets[orientationId][k] = piece.rowLocations.get(k) * nCols + piece.colLocations.get(k);
+            }
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,64 @@
+package engine;
+
+import javax.management.NotificationEmitter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Has engines made with {@link Engine#withMemoryBudget} {@link Engine#shrink} their caches when a collection
+ * leaves the heap nearly full. A budget too big for the heap would otherwise fill it up until the JVM spends
+ * all its time collecting and then dies anyway.
+ *
+ * The JVM says when the heap is still over {@link #THRESHOLD} of its maximum after a collection. This sets
+ * that threshold on the heap pools for the whole JVM, the first time an engine registers. Engines are held
+ * weakly, so one that is no longer used goes away as usual.
+ */
+final class MemoryPressure {
+    /**
+     * Fraction of a heap pool's maximum still in use after a collection that counts as running short.
+     */
+    static final double THRESHOLD = 0.8;
+
+    private static final Set<Engine> ENGINES = Collections.newSetFromMap(new WeakHashMap<>());
+    private static boolean listening;
+
+    private MemoryPressure() {
+    }
+
+    static synchronized void register(Engine engine) {
+        ENGINES.add(engine);
+        if (listening) {
+            return;
+        }
+        listening = true;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            final long max = pool.getUsage().getMax();
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && max > 0) {
+                pool.setCollectionUsageThreshold((long) (max * THRESHOLD));
+            }
+        }
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener((notification, handback) -> {
+            if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                relieve();
+            }
+        }, null, null);
+    }
+
+    /**
+     * Shrink every registered engine's caches.
+     */
+    static void relieve() {
+        final List<Engine> engines;
+        synchronized (MemoryPressure.class) {
+            engines = new ArrayList<>(ENGINES);
+        }
+        engines.forEach(Engine::shrink);
+    }
+}
@@ -1,14 +1,54 @@
 package engine;
 
+import game.PieceRegistry;
 import lombok.Value;
 import model.piece.Piece;
 
 /**
  * Represents a player's option to place PIECE at ROW, COLUMN.
+ *
+ * Moves are also passed around packed into an int: the orientation ID (see {@link PieceRegistry}) in the
+ * high bits, then the row and column a byte each.
  */
 @Value
 public class Move {
+    /**
+     * Packed value for "no move": the start of the game, or a pass.
+     */
+    public static final int NONE = -1;
+
     final int row;
     final int column;
     final Piece piece;
+
+    public static int pack(int orientationId, int row, int column) {
+        return orientationId << 16 | row << 8 | column;
+    }
+
+    public static int orientationOf(int packedMove) {
+        return packedMove >>> 16;
+    }
+
+    public static int rowOf(int packedMove) {
+        return (packedMove >>> 8) & 0xFF;
+    }
+
+    public static int columnOf(int packedMove) {
+        return packedMove & 0xFF;
+    }
+
+    /**
+     * @return the same placement mirrored across the main diagonal (see {@link GameState#transposed()})
+     */
+    public static int transposed(int packedMove) {
+        if (packedMove == NONE) {
+            return NONE;
+        }
+        return pack(PieceRegistry.transposedOrientation(orientationOf(packedMove)),
+                columnOf(packedMove), rowOf(packedMove));
+    }
+
+    public static Move unpack(int packedMove) {
+        return new Move(rowOf(packedMove), columnOf(packedMove), PieceRegistry.orientedPiece(orientationOf(packedMove)));
+    }
 }
@@ -0,0 +1,199 @@
+package engine;
+
+import lombok.Value;
+import model.player.Player;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Thinks on the other players' time. While they are to move, it guesses their likeliest replies (the
+ * engine's own top candidates for them) and searches the positions we could face next, filling the
+ * engine's transposition table. When we get to move for real, the search finds the work already done.
+ *
+ * Guessing runs on the pondering threads too, so that starting never holds up the caller. Work is queued a
+ * candidate move of ours at a time, likeliest lines first. Each line's work runs as an {@link AnytimeSearch},
+ * so once an opponent moves, work on lines that no longer can happen is stopped, even mid-search, and the
+ * threads move on. Anything waiting on a table entry a stopped line was filling in fills it in itself.
+ *
+ * <pre>
+ *   ponderer.ponder(afterOurMove, us, depth);
+ *   ...
+ *   ponderer.observe(afterTheirMove);  // for each opponent move
+ * </pre>
+ */
+public class Ponderer implements Closeable {
+    private final Engine engine;
+    /**
+     * Replies to guess for each opponent.
+     */
+    private final int breadth;
+    private final ExecutorService executor;
+
+    /**
+     * Queued or running work, each on one guessed line of opponent moves: searching one of our candidates
+     * at its end, or still guessing further along it.
+     */
+    private final List<Line> lines = new ArrayList<>();
+    private Player us;
+    private int depth;
+
+    @Value
+    private static class Line {
+        /**
+         * Hashes of the opponent positions along the line.
+         */
+        Set<Long> path;
+        AnytimeSearch work;
+    }
+
+    public Ponderer(Engine engine, int breadth, int nThreads) {
+        this.engine = engine;
+        this.breadth = breadth;
+        this.executor = Executors.newFixedThreadPool(nThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "ponderer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Drop whatever we were pondering and start on POSITION, where other players are to move.
+     * @param us the player we are searching for
+     * @param depth the depth we will search at once it is our move
+     */
+    public synchronized void ponder(GameState position, Player us, int depth) {
+        this.cancel(line -> true);
+        this.us = us;
+        this.depth = depth;
+        this.queueExpansion(position, new HashSet<>());
+    }
+
+    /**
+     * An opponent has made a move, reaching POSITION. Keep the work on lines through it and drop the rest.
+     * If we did not see the move coming, start over from POSITION.
+     */
+    public synchronized void observe(GameState position) {
+        if (this.us == null) {
+            return;
+        }
+        this.cancel(line -> !line.getPath().contains(position.getPositionHash()));
+        if (this.lines.isEmpty() && !position.isOver() && position.nowPlaying() != this.us) {
+            this.queueExpansion(position, new HashSet<>());
+        }
+    }
+
+    /**
+     * Stop pondering, e.g. when it is our move and the search should have every core.
+     */
+    public synchronized void stop() {
+        this.cancel(line -> true);
+        this.us = null;
+    }
+
+    /**
+     * @return number of lines pondered (or being pondered, or still being guessed) that could still happen
+     */
+    public synchronized int nLines() {
+        return this.lines.size();
+    }
+
+    /**
+     * @return the work on every remaining line. For tests.
+     */
+    synchronized List<AnytimeSearch> work() {
+        final List<AnytimeSearch> work = new ArrayList<>();
+        this.lines.forEach(line -> work.add(line.getWork()));
+        return work;
+    }
+
+    /**
+     * Wait for the work on every remaining line to finish, guessing included. For tests.
+     */
+    void awaitIdle() throws InterruptedException, ExecutionException {
+        boolean idle = false;
+        while (!idle) {
+            final List<Line> lines;
+            synchronized (this) {
+                lines = new ArrayList<>(this.lines);
+            }
+            idle = true;
+            for (Line line : lines) {
+                idle &= line.getWork().isDone();
+                try {
+                    line.getWork().get();
+                } catch (CancellationException e) {
+                    // Dropped in the meantime.
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue up guessing the line from STATE onwards. Call with the lock held.
+     */
+    private void queueExpansion(GameState state, Set<Long> path) {
+        final int depth = this.depth;
+        final Line line = new Line(path, new AnytimeSearch());
+        this.lines.add(line);
+        this.executor.execute(() -> line.getWork().run(() -> {
+            this.expand(state, depth, line);
+            return null;
+        }));
+    }
+
+    /**
+     * Follow guessed opponent replies from STATE until it is our move, then queue searches of our
+     * candidate moves there. Runs on a pondering thread, taking the place of its own LINE.
+     */
+    private void expand(GameState state, int depth, Line line) {
+        final List<GameState> candidates = state.isOver() || depth < 1 ? List.of()
+                : this.engine.candidateMoves(state, depth);
+        synchronized (this) {
+            // Gone if the line was dropped while we were guessing.
+            if (!this.lines.remove(line) || candidates.isEmpty()) {
+                return;
+            }
+            final Set<Long> path = line.getPath();
+            if (state.nowPlaying() == this.us) {
+                final int candidateDepth = depth - 1;
+                for (GameState candidate : candidates) {
+                    final AnytimeSearch work = new AnytimeSearch();
+                    this.lines.add(new Line(path, work));
+                    this.executor.execute(() -> work.run(() -> this.engine.lookup(candidate, candidateDepth)));
+                }
+                return;
+            }
+            for (GameState reply : candidates.subList(0, Math.min(this.breadth, candidates.size()))) {
+                final Set<Long> replyPath = new HashSet<>(path);
+                replyPath.add(reply.getPositionHash());
+                this.queueExpansion(reply, replyPath);
+            }
+        }
+    }
+
+    private void cancel(Predicate<Line> shouldCancel) {
+        this.lines.removeIf(line -> {
+            if (!shouldCancel.test(line)) {
+                return false;
+            }
+            line.getWork().stop();
+            return true;
+        });
+    }
+
+    @Override
+    public void close() {
+        this.stop();
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,80 @@
+package engine;
+
+import lombok.AllArgsConstructor;
+import model.player.Player;
+
+import java.util.List;
+
+/**
+ * Decides how deep to search each of a node's moves, rather than searching them all to the same depth. The
+ * shallow pass is usually right about which moves are bad, so moves it ranks low are searched a few plies
+ * shallower, and only searched again properly if they come out close to the best. The plies saved go to
+ * forcing lines, where someone is about to run out of moves and a ply too few can miss it entirely.
+ *
+ * A move is extended when it leads to a forcing position from one that is not. The extended position's own
+ * moves then can't be extended, so however long a forcing line runs, depth still goes down a ply every two.
+ */
+@AllArgsConstructor
+public class SelectiveDepth {
+    /**
+     * The best this many moves by shallow score are never reduced. The best one never is, whatever this says:
+     * the engine needs at least one move searched to full depth to measure the others against.
+     */
+    final int fullDepthMoves;
+    /**
+     * Only reduce at nodes with at least this many plies left to search.
+     */
+    final int minDepth;
+    /**
+     * Plies taken off a reduced move's search.
+     */
+    final int reduction;
+    /**
+     * A reduced move scoring more than this behind the best move, searched to the same reduced depth, is taken
+     * as bad; anything closer is searched again at full depth. In the evaluator's units; may be negative.
+     */
+    final double researchMargin;
+    /**
+     * A position is forcing when some player in it has at most this many legal moves left (0 for no
+     * extensions).
+     */
+    final int forcingMoves;
+
+    /**
+     * @return true if a player in STATE has next to no moves left
+     */
+    boolean isForcing(GameState state) {
+        if (this.forcingMoves <= 0) {
+            return false;
+        }
+        final LegalMoves legalMoves = state.legalMoves();
+        for (Player player : state.nextPlayers) {
+            if (legalMoves.of(player).length <= this.forcingMoves) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Work out how deep to search each of STATE's CANDIDATES when searching STATE to DEPTH.
+     * @param candidates best first by shallow score
+     * @param hint the move that came out best last time STATE was searched, never reduced
+     * @param fullDepths filled in with each candidate's depth if it is not reduced: DEPTH - 1, or DEPTH if
+     *  extended
+     * @param depths filled in with the depth to search each candidate to first
+     */
+    void assign(GameState state, int depth, List<EvaluatedGameState> candidates, int hint, int[] fullDepths,
+                int[] depths) {
+        final boolean extendable = !this.isForcing(state);
+        final int fullDepthMoves = Math.max(1, this.fullDepthMoves);
+        for (int i = 0; i < candidates.size(); i++) {
+            final GameState child = candidates.get(i).getBestMove();
+            final boolean extended = extendable && this.isForcing(child);
+            fullDepths[i] = extended ? depth : depth - 1;
+            final boolean reduced = !extended && depth >= this.minDepth && i >= fullDepthMoves
+                    && child.getLastMove() != hint;
+            depths[i] = reduced ? Math.max(0, fullDepths[i] - this.reduction) : fullDepths[i];
+        }
+    }
+}
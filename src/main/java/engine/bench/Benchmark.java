@@ -0,0 +1,203 @@
+package engine.bench;
+
+import engine.AnytimeSearch;
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.evaluators.MaterialMinusOthersEvaluator;
+import lombok.AllArgsConstructor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the engine over a benchmark suite and compares against a stored baseline. Catches the regressions
+ * microbenchmarks don't: worse move ordering or table policy shows up as more nodes for the same depth,
+ * or as missing the best move.
+ *
+ * Every position gets a fresh engine, so no position's search is helped by the one before.
+ */
+@AllArgsConstructor
+public class Benchmark {
+    final Supplier<Engine> engines;
+
+    /**
+     * Search every position to DEPTH.
+     */
+    public List<BenchmarkResult> runAtDepth(List<BenchmarkPosition> suite, int depth) throws Exception {
+        final List<BenchmarkResult> results = new ArrayList<>();
+        for (BenchmarkPosition position : suite) {
+            final Engine engine = this.engines.get();
+            final long start = System.nanoTime();
+            final EvaluatedGameState result = engine.evaluate(position.position(), depth, false);
+            results.add(resultOf(position, engine, depth, result, start));
+        }
+        return results;
+    }
+
+    /**
+     * Search every position as deep as it gets in MILLIS.
+     */
+    public List<BenchmarkResult> runForTime(List<BenchmarkPosition> suite, long millis) throws Exception {
+        final List<BenchmarkResult> results = new ArrayList<>();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (BenchmarkPosition position : suite) {
+                final Engine engine = this.engines.get();
+                final AtomicInteger depth = new AtomicInteger();
+                final long start = System.nanoTime();
+                final AnytimeSearch search = engine.searchAsync(position.position(), Integer.MAX_VALUE, false,
+                        executor, improvement -> depth.incrementAndGet());
+                EvaluatedGameState result;
+                try {
+                    result = search.get(millis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    result = search.stop().orElse(null);
+                }
+                if (result != null) {
+                    results.add(resultOf(position, engine, depth.get(), result, start));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private static BenchmarkResult resultOf(BenchmarkPosition position, Engine engine, int depth,
+                                            EvaluatedGameState result, long start) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        final int move = result.getBestMove().getLastMove();
+        return new BenchmarkResult(position.getName(), depth, engine.nodeCount(), millis, engine.tableHitRate(),
+                move, move == position.getBestMove());
+    }
+
+    /**
+     * Speed is compared over the whole suite, since single positions are over too quickly to time.
+     * @param tolerance how much worse (as a fraction) nodes, speed or hit rate may get before it counts
+     * @return a line for each regression from BASELINE, by position name; positions not in it are skipped
+     */
+    public static List<String> regressions(Map<String, BenchmarkResult> baseline, List<BenchmarkResult> results,
+                                           double tolerance) {
+        final List<String> regressions = new ArrayList<>();
+        long nodes = 0, millis = 0, nodesBefore = 0, millisBefore = 0;
+        for (BenchmarkResult result : results) {
+            final BenchmarkResult before = baseline.get(result.getName());
+            if (before == null) {
+                continue;
+            }
+            nodes += result.getNodes();
+            millis += result.getMillis();
+            nodesBefore += before.getNodes();
+            millisBefore += before.getMillis();
+            final String name = result.getName();
+            if (before.isFound() && !result.isFound()) {
+                regressions.add(name + ": no longer finds the best move");
+            }
+            if (result.getDepth() < before.getDepth()) {
+                regressions.add(String.format("%s: reached depth %d, was %d", name, result.getDepth(),
+                        before.getDepth()));
+            } else if (result.getDepth() == before.getDepth()
+                    && result.getNodes() > before.getNodes() * (1 + tolerance)) {
+                regressions.add(String.format("%s: %d nodes, was %d", name, result.getNodes(), before.getNodes()));
+            }
+            if (result.getTableHitRate() < before.getTableHitRate() * (1 - tolerance)) {
+                regressions.add(String.format("%s: table hit rate %.3f, was %.3f", name, result.getTableHitRate(),
+                        before.getTableHitRate()));
+            }
+        }
+        final double speed = nodes * 1000.0 / Math.max(1, millis);
+        final double speedBefore = nodesBefore * 1000.0 / Math.max(1, millisBefore);
+        if (speed < speedBefore * (1 - tolerance)) {
+            regressions.add(String.format("suite: %.0f nodes/s, was %.0f", speed, speedBefore));
+        }
+        return regressions;
+    }
+
+    public static Map<String, BenchmarkResult> readBaseline(Path path) throws IOException {
+        final Map<String, BenchmarkResult> baseline = new LinkedHashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    final BenchmarkResult result = BenchmarkResult.fromLine(line);
+                    baseline.put(result.getName(), result);
+                }
+            }
+        }
+        return baseline;
+    }
+
+    public static void writeBaseline(Path path, List<BenchmarkResult> results) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.US_ASCII))) {
+            out.println("# NAME DEPTH NODES MILLIS TABLE_HIT_RATE MOVE FOUND");
+            results.forEach(result -> out.println(result.toLine()));
+        }
+    }
+
+    /**
+     * Usage:
+     * <pre>
+     *   Benchmark run BASELINE (depth DEPTH | time MILLIS) [update] [SUITE]
+     *   Benchmark generate SUITE N_GAMES [REFERENCE_DEPTH]
+     * </pre>
+     * run prints each result and any regressions from BASELINE, and exits with status 1 if there were any.
+     * With update, it writes the results as the new baseline instead.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args[0].equals("generate")) {
+            final int referenceDepth = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+            final List<BenchmarkPosition> suite =
+                    BenchmarkSuite.generate(Integer.parseInt(args[2]), referenceDepth, 8);
+            try (PrintWriter out = new PrintWriter(
+                    Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.US_ASCII))) {
+                BenchmarkSuite.write(out, suite);
+            }
+            return;
+        }
+
+        final Path baselinePath = Paths.get(args[1]);
+        final boolean fixedDepth = args[2].equals("depth");
+        final long limit = Long.parseLong(args[3]);
+        final boolean update = args.length > 4 && args[4].equals("update");
+        final int suiteArg = update ? 5 : 4;
+        final List<BenchmarkPosition> suite =
+                args.length > suiteArg ? BenchmarkSuite.read(Paths.get(args[suiteArg])) : BenchmarkSuite.standard();
+
+        final Benchmark benchmark = new Benchmark(() -> Engine.withMemoryBudget(new MaterialMinusOthersEvaluator(0), 8,
+                Runtime.getRuntime().maxMemory() / 2));
+        // Once untimed, so the timed run isn't measuring the JIT.
+        benchmark.runAtDepth(suite, fixedDepth ? (int) limit : 2);
+        final List<BenchmarkResult> results =
+                fixedDepth ? benchmark.runAtDepth(suite, (int) limit) : benchmark.runForTime(suite, limit);
+        for (BenchmarkResult result : results) {
+            System.out.printf("%-14s depth %2d %10d nodes %8.0f nodes/s hit rate %.3f %s%n", result.getName(),
+                    result.getDepth(), result.getNodes(), result.nodesPerSecond(), result.getTableHitRate(),
+                    result.isFound() ? "found" : "missed");
+        }
+
+        if (update || !Files.exists(baselinePath)) {
+            writeBaseline(baselinePath, results);
+            System.out.println("Wrote baseline to " + baselinePath);
+            return;
+        }
+        final List<String> regressions = regressions(readBaseline(baselinePath), results, 0.25);
+        regressions.forEach(System.out::println);
+        if (!regressions.isEmpty()) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package engine.bench;
+
+import engine.GameState;
+import engine.Move;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A position from the benchmark suite, kept as the moves that lead to it from a new game.
+ */
+@Value
+public class BenchmarkPosition {
+    String name;
+    /**
+     * opening, midgame, late or endgame
+     */
+    String phase;
+    /**
+     * The best move here according to a deeper reference search, packed, or Move.NONE to pass.
+     */
+    int bestMove;
+    /**
+     * Packed moves from a new game, Move.NONE for a pass.
+     */
+    List<Integer> moves;
+
+    /**
+     * @return the position the moves lead to
+     * @throws IllegalArgumentException if one of them is illegal
+     */
+    public GameState position() {
+        GameState state = GameState.newGame();
+        for (int move : this.moves) {
+            if (move == Move.NONE) {
+                // Blocked players now leave without passing, but older suites have their passes in them.
+                if (!state.hasAnyMove()) {
+                    state = state.pass();
+                }
+                continue;
+            }
+            final GameState current = state;
+            state = state.play(move).orElseThrow(() -> new IllegalArgumentException(
+                    this.name + ": illegal move " + Move.unpack(move) + " at turn " + current.getTurnNumber()));
+        }
+        return state;
+    }
+}
@@ -0,0 +1,45 @@
+package engine.bench;
+
+import lombok.Value;
+
+/**
+ * How one search of one benchmark position went.
+ */
+@Value
+public class BenchmarkResult {
+    String name;
+    /**
+     * Depth of the deepest finished search: the fixed depth, or however far a timed search got.
+     */
+    int depth;
+    long nodes;
+    long millis;
+    /**
+     * Fraction of transposition table lookups that found a result.
+     */
+    double tableHitRate;
+    /**
+     * The move the search chose, packed.
+     */
+    int move;
+    /**
+     * Whether that was the suite's best move.
+     */
+    boolean found;
+
+    public double nodesPerSecond() {
+        return this.nodes * 1000.0 / Math.max(1, this.millis);
+    }
+
+    String toLine() {
+        return String.format("%s %d %d %d %.4f %d %b",
+                this.name, this.depth, this.nodes, this.millis, this.tableHitRate, this.move, this.found);
+    }
+
+    static BenchmarkResult fromLine(String line) {
+        final String[] fields = line.trim().split("\\s+");
+        return new BenchmarkResult(fields[0], Integer.parseInt(fields[1]), Long.parseLong(fields[2]),
+                Long.parseLong(fields[3]), Double.parseDouble(fields[4]), Integer.parseInt(fields[5]),
+                Boolean.parseBoolean(fields[6]));
+    }
+}
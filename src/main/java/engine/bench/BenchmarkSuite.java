@@ -0,0 +1,131 @@
+package engine.bench;
+
+import engine.Engine;
+import engine.GameState;
+import engine.Move;
+import engine.evaluators.MaterialMinusOthersEvaluator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes benchmark suites. A suite is a text file with a position per line:
+ * <pre>
+ *   # comment
+ *   NAME PHASE BEST_MOVE MOVE MOVE ...
+ * </pre>
+ * with moves packed as in {@link Move#pack} and -1 for a pass. The moves lead to the position from a new
+ * game, so suites survive changes to any binary position format.
+ */
+public class BenchmarkSuite {
+    /**
+     * Classpath resource with the standard suite.
+     */
+    public static final String STANDARD = "/bench/suite.txt";
+
+    /**
+     * Plies into a generated game at which to take positions, by phase; negative counts back from the end.
+     */
+    private static final String[] PHASES = {"opening", "midgame", "late", "endgame"};
+    private static final int[][] PLIES = {{4, 8}, {20, 30}, {40, 48}, {-8, -4}};
+
+    private BenchmarkSuite() {
+    }
+
+    public static List<BenchmarkPosition> standard() throws IOException {
+        try (InputStream in = BenchmarkSuite.class.getResourceAsStream(STANDARD)) {
+            if (in == null) {
+                throw new IOException("No benchmark suite at " + STANDARD);
+            }
+            return read(new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII)));
+        }
+    }
+
+    public static List<BenchmarkPosition> read(Path path) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            return read(in);
+        }
+    }
+
+    public static List<BenchmarkPosition> read(BufferedReader in) throws IOException {
+        final List<BenchmarkPosition> positions = new ArrayList<>();
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final String[] fields = line.split("\\s+");
+            if (fields.length < 3) {
+                throw new IOException("Expected NAME PHASE BEST_MOVE MOVES...: " + line);
+            }
+            final List<Integer> moves = new ArrayList<>(fields.length - 3);
+            try {
+                for (int i = 3; i < fields.length; i++) {
+                    moves.add(Integer.parseInt(fields[i]));
+                }
+                positions.add(new BenchmarkPosition(fields[0], fields[1], Integer.parseInt(fields[2]), moves));
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad move in: " + line, e);
+            }
+        }
+        return positions;
+    }
+
+    public static void write(Writer writer, List<BenchmarkPosition> positions) {
+        final PrintWriter out = new PrintWriter(writer);
+        out.println("# NAME PHASE BEST_MOVE MOVES... (packed moves from a new game, -1 to pass)");
+        for (BenchmarkPosition position : positions) {
+            out.print(position.getName() + " " + position.getPhase() + " " + position.getBestMove());
+            for (int move : position.getMoves()) {
+                out.print(" " + move);
+            }
+            out.println();
+        }
+        out.flush();
+    }
+
+    /**
+     * Make a suite out of N_GAMES quick self-play games, taking positions from each phase and labelling
+     * each with the best move by a deeper search.
+     */
+    public static List<BenchmarkPosition> generate(int nGames, int referenceDepth, int referenceBeam)
+            throws Exception {
+        final List<BenchmarkPosition> positions = new ArrayList<>();
+        for (int game = 0; game < nGames; game++) {
+            final Engine player = new Engine(new MaterialMinusOthersEvaluator(game), 4, 100000);
+            final List<GameState> plies = new ArrayList<>();
+            final List<Integer> moves = new ArrayList<>();
+            GameState state = GameState.newGame();
+            while (!state.isOver()) {
+                plies.add(state);
+                state = player.evaluate(state, 1, false).getBestMove();
+                moves.add(state.getLastMove());
+            }
+
+            final Engine reference = Engine.withMemoryBudget(new MaterialMinusOthersEvaluator(0), referenceBeam,
+                    Runtime.getRuntime().maxMemory() / 2);
+            for (int phase = 0; phase < PHASES.length; phase++) {
+                for (int ply : PLIES[phase]) {
+                    final int at = ply < 0 ? plies.size() + ply : ply;
+                    if (at < 0 || at >= plies.size()) {
+                        continue;
+                    }
+                    final int bestMove = reference.evaluate(plies.get(at), referenceDepth, true)
+                            .getBestMove().getLastMove();
+                    positions.add(new BenchmarkPosition(PHASES[phase] + "-" + game + "-" + at, PHASES[phase],
+                            bestMove, new ArrayList<>(moves.subList(0, at))));
+                }
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,121 @@
+package engine.book;
+
+import engine.EvaluatedGameState;
+import engine.Evaluation;
+import engine.GameState;
+import model.player.Player;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Optional;
+
+/**
+ * Read-only view of an opening book written by {@link OpeningBookBuilder}. The file is memory-mapped
+ * and searched in place, so opening a book costs nothing on the heap no matter how large it is.
+ *
+ * File layout (little endian):
+ * <pre>
+ *   header: int magic, int version, int nEntries, int reserved
+ *   entry:  long positionHash, long bestMoveHash, int depth, float[5] scores (by Player ordinal)
+ * </pre>
+ * Entries are sorted by positionHash (signed comparison) so lookups are a binary search.
+ */
+public class OpeningBook {
+    static final int MAGIC = 0x424C4B42; // "BLKB"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 40;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int BEST_MOVE_OFFSET = 8;
+    private static final int DEPTH_OFFSET = 16;
+    private static final int SCORES_OFFSET = 20;
+
+    private final MappedByteBuffer buffer;
+    private final int nEntries;
+
+    private OpeningBook(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not an opening book (or unsupported version)");
+        }
+        this.nEntries = buffer.getInt(8);
+        if ((long) HEADER_BYTES + (long) nEntries * ENTRY_BYTES > buffer.capacity()) {
+            throw new IllegalArgumentException("Opening book is truncated");
+        }
+    }
+
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(BYTE_ORDER);
+            return new OpeningBook(buffer);
+        }
+    }
+
+    public int size() {
+        return this.nEntries;
+    }
+
+    /**
+     * Look up the book move for this position.
+     * @param state position to look up
+     * @param depth minimum search depth the stored result must have come from
+     * @return the booked move and its evaluation, or empty if the position is not in the book (or
+     *  was booked at a shallower depth)
+     */
+    public Optional<EvaluatedGameState> lookup(GameState state, int depth) {
+        final int index = this.indexOf(state.getPositionHash());
+        if (index < 0) {
+            return Optional.empty();
+        }
+        final int offset = HEADER_BYTES + index * ENTRY_BYTES;
+        if (this.buffer.getInt(offset + DEPTH_OFFSET) < depth) {
+            return Optional.empty();
+        }
+
+        final long bestMoveHash = this.buffer.getLong(offset + BEST_MOVE_OFFSET);
+        for (GameState child : state.possibleMoves()) {
+            if (child.getPositionHash() == bestMoveHash) {
+                return Optional.of(new EvaluatedGameState(child, this.readEvaluation(offset)));
+            }
+        }
+        // Hash collision with a position from some other game; don't trust it.
+        return Optional.empty();
+    }
+
+    private Evaluation readEvaluation(int offset) {
+        final EnumMap<Player, Double> scores = new EnumMap<>(Player.class);
+        for (Player player : Player.values()) {
+            scores.put(player, (double) this.buffer.getFloat(offset + SCORES_OFFSET + 4 * player.ordinal()));
+        }
+        return new Evaluation(scores);
+    }
+
+    /**
+     * @return index of the entry with this hash, or -1 if there is none
+     */
+    int indexOf(long positionHash) {
+        int lo = 0;
+        int hi = this.nEntries - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final long key = this.buffer.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+            final int cmp = Long.compare(key, positionHash);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,100 @@
+package engine.book;
+
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.GameState;
+import engine.evaluators.MaterialMinusOthersEvaluator;
+import lombok.AllArgsConstructor;
+import model.player.Player;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Offline tool that deep-searches the first few plies of the game and writes the results as an
+ * {@link OpeningBook}. Positions are expanded breadth-first along the engine's own candidate moves, so
+ * the book covers the lines the engine (and opponents that think like it) actually play.
+ */
+@AllArgsConstructor
+public class OpeningBookBuilder {
+    /**
+     * Engine used to search each book position. Should not itself have a book attached.
+     */
+    final Engine engine;
+    /**
+     * Plies to search below each book position.
+     */
+    final int depth;
+    /**
+     * Book positions are at most this many plies from the start of the game.
+     */
+    final int plies;
+    /**
+     * Expand at most this many candidate moves from each book position.
+     */
+    final int breadth;
+
+    public void build(Path output) throws Exception {
+        // Sorted by hash, which is the order the reader's binary search expects.
+        final SortedMap<Long, EvaluatedGameState> entries = new TreeMap<>();
+
+        List<GameState> frontier = List.of(GameState.newGame());
+        for (int ply = 0; ply < this.plies && !frontier.isEmpty(); ply++) {
+            final List<GameState> nextFrontier = new ArrayList<>();
+            for (GameState state : frontier) {
+                if (state.isOver() || entries.containsKey(state.getPositionHash())) {
+                    continue;
+                }
+                entries.put(state.getPositionHash(), this.engine.evaluate(state, this.depth, true));
+
+                final List<GameState> candidates = this.engine.candidateMoves(state, this.depth);
+                nextFrontier.addAll(candidates.subList(0, Math.min(this.breadth, candidates.size())));
+            }
+            frontier = nextFrontier;
+        }
+
+        write(entries, this.depth, output);
+    }
+
+    static void write(SortedMap<Long, EvaluatedGameState> entries, int depth, Path output) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            final ByteBuffer header = ByteBuffer.allocate(OpeningBook.HEADER_BYTES).order(OpeningBook.BYTE_ORDER);
+            header.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(entries.size()).putInt(0);
+            out.write(header.array());
+
+            final ByteBuffer entry = ByteBuffer.allocate(OpeningBook.ENTRY_BYTES).order(OpeningBook.BYTE_ORDER);
+            for (Map.Entry<Long, EvaluatedGameState> e : entries.entrySet()) {
+                entry.clear();
+                entry.putLong(e.getKey());
+                entry.putLong(e.getValue().getBestMove().getPositionHash());
+                entry.putInt(depth);
+                final Map<Player, Double> scores = e.getValue().getEvaluation().getScores();
+                for (Player player : Player.values()) {
+                    entry.putFloat(scores.getOrDefault(player, 0.0).floatValue());
+                }
+                out.write(entry.array());
+            }
+        }
+    }
+
+    /**
+     * Usage: OpeningBookBuilder OUTPUT_FILE [DEPTH] [PLIES] [BREADTH] [SEED]
+     */
+    public static void main(String[] args) throws Exception {
+        final Path output = Paths.get(args[0]);
+        final int depth = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final int plies = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        final int breadth = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        final long seed = args.length > 4 ? Long.parseLong(args[4]) : MaterialMinusOthersEvaluator.DEFAULT_SEED;
+
+        final Engine engine = Engine.withMemoryBudget(new MaterialMinusOthersEvaluator(seed), 8,
+                Runtime.getRuntime().maxMemory() / 2);
+        new OpeningBookBuilder(engine, depth, plies, breadth).build(output);
+    }
+}
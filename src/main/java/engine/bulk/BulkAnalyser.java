@@ -0,0 +1,235 @@
+package engine.bulk;
+
+import engine.AnytimeSearch;
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.GameState;
+import engine.evaluators.CachingEvaluator;
+import engine.evaluators.MaterialMinusOthersEvaluator;
+import engine.record.PositionCodec;
+import lombok.AllArgsConstructor;
+import model.player.Player;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analyses a file of positions, one {@link PositionCodec#toBase64} per line, writing a line per position in
+ * the same order:
+ * <pre>
+ *   INDEX DEPTH MOVE SCORE_A SCORE_B SCORE_C SCORE_D
+ *   INDEX none            (out of time before even depth 1 finished)
+ *   INDEX error MESSAGE
+ * </pre>
+ * DEPTH is the deepest search that finished in the time limit, MOVE is packed as in {@link engine.Move#pack}.
+ *
+ * Positions stream through: a pool of threads searches them with one shared engine (and so one shared
+ * transposition table), and results are written as soon as everything before them has been. At most
+ * WINDOW positions are in memory at once, being searched or waiting for a slow one ahead of them.
+ *
+ * Every so often the number of positions written and the length of the output are checkpointed next to
+ * it. Run again on the same files, it picks up from the last checkpoint.
+ */
+public class BulkAnalyser {
+    final Engine engine;
+    final int nThreads;
+    /**
+     * At least 1, since a search has nothing to report until depth 1 is done.
+     */
+    final int depth;
+    /**
+     * Per position; 0 for none.
+     */
+    final long timeLimitMillis;
+    /**
+     * Positions read ahead of the last one written.
+     */
+    final int window;
+    /**
+     * Positions between checkpoints.
+     */
+    final int checkpointEvery;
+
+    public BulkAnalyser(Engine engine, int nThreads, int depth, long timeLimitMillis, int window,
+                        int checkpointEvery) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be at least 1, not " + depth);
+        }
+        this.engine = engine;
+        this.nThreads = nThreads;
+        this.depth = depth;
+        this.timeLimitMillis = timeLimitMillis;
+        this.window = window;
+        this.checkpointEvery = checkpointEvery;
+    }
+
+    /**
+     * A position read, and its search.
+     */
+    @AllArgsConstructor
+    private static class Pending {
+        final long index;
+        final CompletableFuture<EvaluatedGameState> result;
+        /**
+         * Deepest search finished so far.
+         */
+        final AtomicInteger depth;
+    }
+
+    public static Path checkpointPath(Path output) {
+        return output.resolveSibling(output.getFileName() + ".checkpoint");
+    }
+
+    /**
+     * Analyse INPUT into OUTPUT, resuming from OUTPUT's checkpoint if there is one.
+     * @return positions written in this run
+     */
+    public long analyse(Path input, Path output) throws IOException {
+        final Path checkpoint = checkpointPath(output);
+        long nDone = 0;
+        long nBytes = 0;
+        if (Files.exists(checkpoint) && Files.exists(output)) {
+            final String[] fields = Files.readString(checkpoint, StandardCharsets.US_ASCII).trim().split(" ");
+            nDone = Long.parseLong(fields[0]);
+            nBytes = Long.parseLong(fields[1]);
+        }
+        // Drop anything written after the checkpoint; it will be written again.
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(nBytes);
+        }
+
+        final ExecutorService workers = Executors.newFixedThreadPool(this.nThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "bulk-analyser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "bulk-analyser-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Deque<Pending> pending = new ArrayDeque<>();
+        final long resumedAt = nDone;
+        try (BufferedReader in = Files.newBufferedReader(input, StandardCharsets.US_ASCII);
+             Writer out = Files.newBufferedWriter(output, StandardCharsets.US_ASCII, StandardOpenOption.APPEND)) {
+            long index = 0;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (index++ < resumedAt) {
+                    continue;
+                }
+                pending.add(this.submit(index - 1, line.trim(), workers, timer));
+                while (pending.size() >= this.window || (!pending.isEmpty() && pending.peek().result.isDone())) {
+                    nBytes += write(out, pending.poll());
+                    if (++nDone % this.checkpointEvery == 0) {
+                        out.flush();
+                        writeCheckpoint(checkpoint, nDone, nBytes);
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                nBytes += write(out, pending.poll());
+                nDone++;
+            }
+            out.flush();
+            writeCheckpoint(checkpoint, nDone, nBytes);
+        } finally {
+            pending.forEach(p -> p.result.cancel(false));
+            workers.shutdownNow();
+            timer.shutdownNow();
+        }
+        return nDone - resumedAt;
+    }
+
+    private Pending submit(long index, String line, ExecutorService workers, ScheduledExecutorService timer) {
+        final AtomicInteger depthReached = new AtomicInteger();
+        final GameState position;
+        try {
+            position = PositionCodec.fromBase64(line);
+        } catch (IllegalArgumentException | IOException e) {
+            return new Pending(index, CompletableFuture.failedFuture(e), depthReached);
+        }
+
+        // The clock starts when a worker picks the position up, not while it waits for one.
+        final CompletableFuture<AnytimeSearch> handle = new CompletableFuture<>();
+        final Executor startTimed = runnable -> workers.execute(() -> {
+            if (this.timeLimitMillis > 0) {
+                timer.schedule(() -> handle.thenAccept(AnytimeSearch::stop), this.timeLimitMillis,
+                        TimeUnit.MILLISECONDS);
+            }
+            runnable.run();
+        });
+        final AnytimeSearch search = this.engine.searchAsync(position, this.depth, false, startTimed,
+                result -> depthReached.incrementAndGet());
+        handle.complete(search);
+        return new Pending(index, search, depthReached);
+    }
+
+    /**
+     * Wait for PENDING's search and write its line.
+     * @return bytes written
+     */
+    private static int write(Writer out, Pending pending) throws IOException {
+        String line;
+        try {
+            final EvaluatedGameState result = pending.result.join();
+            final StringBuilder builder = new StringBuilder()
+                    .append(pending.index).append(' ').append(pending.depth.get())
+                    .append(' ').append(result.getBestMove().getLastMove());
+            for (Player player : GameState.STARTING_ORDER) {
+                builder.append(' ').append(result.getEvaluation().getScores().getOrDefault(player, Double.NaN));
+            }
+            line = builder.toString();
+        } catch (CancellationException e) {
+            line = pending.index + " none";
+        } catch (CompletionException e) {
+            line = pending.index + " error " + e.getCause().toString().replace('\n', ' ');
+        }
+        out.write(line);
+        out.write('\n');
+        return line.length() + 1;
+    }
+
+    /**
+     * Written to the side and moved into place, so a crash never leaves half a checkpoint.
+     */
+    private static void writeCheckpoint(Path checkpoint, long nDone, long nBytes) throws IOException {
+        final Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(temporary, nDone + " " + nBytes + "\n", StandardCharsets.US_ASCII);
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Usage: BulkAnalyser INPUT OUTPUT [DEPTH] [TIME_LIMIT_MILLIS] [N_THREADS]
+     * DEPTH is at least 1.
+     */
+    public static void main(String[] args) throws Exception {
+        final int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        final long timeLimit = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        final int nThreads = args.length > 4 ? Integer.parseInt(args[4])
+                : Runtime.getRuntime().availableProcessors();
+        final Engine engine = Engine.withMemoryBudget(new CachingEvaluator(new MaterialMinusOthersEvaluator(0), 20), 8,
+                Runtime.getRuntime().maxMemory() / 2);
+        final BulkAnalyser analyser = new BulkAnalyser(engine, nThreads, depth, timeLimit, 16 * nThreads, 256);
+        final long nWritten = analyser.analyse(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("Analysed " + nWritten + " positions");
+    }
+}
@@ -0,0 +1,212 @@
+package engine.distributed;
+
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.GameState;
+import model.player.Player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads a search over worker processes ({@link SearchWorker}), so it is not limited to one heap. The
+ * coordinator runs the shallow pass at the root itself, then hands each candidate move out as a unit of
+ * work to whichever worker is free, and picks the best the same way {@link Engine#evaluate} does.
+ *
+ * A worker that dies (its connection fails, or it takes far too long to reply) has its unit handed to
+ * another; if every worker is gone, the coordinator finishes the search itself. Results coming back go into
+ * the coordinator's own transposition table, and units already in it are never sent out. Workers must
+ * evaluate positions as the coordinator's engine does, e.g. with the same seed (see {@link SearchWorker}).
+ */
+public class DistributedSearch implements Closeable {
+    private static final long POLL_MILLIS = 50;
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    /**
+     * Default for how long a worker gets to search a unit one ply deep.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+    /**
+     * Each ply deeper a unit goes multiplies a worker's time to reply by this.
+     */
+    private static final int TIMEOUT_GROWTH = 4;
+
+    private final Engine engine;
+    private final List<Connection> connections = new ArrayList<>();
+    private final ExecutorService executor;
+    private final long timeoutMillis;
+
+    /**
+     * A worker, and whether it is still up.
+     */
+    private static class Connection implements Closeable {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        volatile boolean alive = true;
+
+        Connection(InetSocketAddress address) throws IOException {
+            this.socket = new Socket();
+            this.socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+            this.socket.setTcpNoDelay(true);
+            this.in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+        }
+
+        /**
+         * @throws java.net.SocketTimeoutException if the worker goes TIMEOUT_MILLIS without replying. The reply
+         *  may still come, so the connection is no use after that.
+         */
+        EvaluatedGameState search(GameState position, int depth, long timeoutMillis) throws IOException {
+            this.socket.setSoTimeout((int) Math.min(timeoutMillis, Integer.MAX_VALUE));
+            Protocol.writeRequest(this.out, position, depth);
+            this.out.flush();
+            return Protocol.readReply(this.in, position, depth);
+        }
+
+        @Override
+        public void close() {
+            this.alive = false;
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                // Already gone.
+            }
+        }
+    }
+
+    public DistributedSearch(Engine engine, List<InetSocketAddress> workers) {
+        this(engine, workers, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Connect to each worker. Workers that can't be reached are skipped.
+     * @param engine searches the root's shallow pass, and anything left when no worker is
+     * @param timeoutMillis how long a worker gets to search a unit one ply deep before it is taken for dead;
+     *  TIMEOUT_GROWTH times that for each ply more
+     */
+    public DistributedSearch(Engine engine, List<InetSocketAddress> workers, long timeoutMillis) {
+        this.engine = engine;
+        this.timeoutMillis = timeoutMillis;
+        for (InetSocketAddress worker : workers) {
+            try {
+                this.connections.add(new Connection(worker));
+            } catch (IOException e) {
+                System.err.println("Could not reach worker " + worker + ": " + e.getMessage());
+            }
+        }
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "distributed-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return number of workers still up
+     */
+    public long nWorkers() {
+        return this.connections.stream().filter(connection -> connection.alive).count();
+    }
+
+    /**
+     * Same as {@link Engine#evaluate}, with the subtree below each candidate move searched by a worker.
+     */
+    public EvaluatedGameState evaluate(GameState state, int depth) throws Exception {
+        if (depth < 2 || state.isOver()) {
+            return this.engine.evaluate(state, depth, false);
+        }
+        final List<GameState> candidates = this.engine.candidateMoves(state, depth);
+        final EvaluatedGameState[] results = new EvaluatedGameState[candidates.size()];
+        final BlockingQueue<Integer> pending = new LinkedBlockingQueue<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            final Optional<EvaluatedGameState> cached = this.engine.cachedResult(candidates.get(i), depth - 1);
+            if (cached.isPresent()) {
+                results[i] = cached.get();
+            } else {
+                pending.add(i);
+            }
+        }
+
+        final CountDownLatch done = new CountDownLatch(pending.size());
+        for (Connection connection : this.connections) {
+            if (connection.alive) {
+                this.executor.execute(() -> this.serve(connection, candidates, depth - 1, pending, results, done));
+            }
+        }
+        while (!done.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (this.nWorkers() == 0) {
+                // Nobody left to hand units to, so finish up here.
+                for (Integer i = pending.poll(); i != null; i = pending.poll()) {
+                    results[i] = this.engine.evaluate(candidates.get(i), depth - 1, false);
+                    this.engine.storeResult(candidates.get(i), depth - 1, results[i]);
+                    done.countDown();
+                }
+            }
+        }
+
+        final Player nowPlaying = state.nowPlaying();
+        int best = 0;
+        for (int i = 1; i < results.length; i++) {
+            if (results[i].getEvaluation().getScores().get(nowPlaying)
+                    > results[best].getEvaluation().getScores().get(nowPlaying)) {
+                best = i;
+            }
+        }
+        return new EvaluatedGameState(candidates.get(best), results[best].getEvaluation());
+    }
+
+    /**
+     * Feed units to one worker until they have all been searched, or the worker dies.
+     */
+    private void serve(Connection connection, List<GameState> candidates, int depth, BlockingQueue<Integer> pending,
+                       EvaluatedGameState[] results, CountDownLatch done) {
+        try {
+            while (done.getCount() > 0) {
+                final Integer i = pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (i == null) {
+                    continue;
+                }
+                try {
+                    results[i] = connection.search(candidates.get(i), depth, this.timeoutMillis(depth));
+                } catch (IOException e) {
+                    pending.add(i);
+                    connection.close();
+                    return;
+                }
+                this.engine.storeResult(candidates.get(i), depth, results[i]);
+                done.countDown();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long timeoutMillis(int depth) {
+        long timeoutMillis = this.timeoutMillis;
+        for (int ply = 1; ply < depth && timeoutMillis < Integer.MAX_VALUE; ply++) {
+            timeoutMillis *= TIMEOUT_GROWTH;
+        }
+        return timeoutMillis;
+    }
+
+    @Override
+    public void close() {
+        this.connections.forEach(Connection::close);
+        this.executor.shutdownNow();
+    }
+}
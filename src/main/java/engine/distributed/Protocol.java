@@ -0,0 +1,63 @@
+package engine.distributed;
+
+import engine.EvaluatedGameState;
+import engine.Evaluation;
+import engine.GameState;
+import engine.Move;
+import engine.record.PositionCodec;
+import model.player.Player;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * What a coordinator and its workers say to each other. Each request gets exactly one reply, in order.
+ * <pre>
+ *   request: byte depth, position (see {@link PositionCodec})
+ *   reply:   int packed best move (Move.NONE for a pass or for the position itself at depth 0),
+ *            byte nScores, nScores * (byte player ordinal, double score)
+ * </pre>
+ */
+final class Protocol {
+    private Protocol() {
+    }
+
+    static void writeRequest(DataOutput out, GameState position, int depth) throws IOException {
+        out.writeByte(depth);
+        PositionCodec.write(out, position);
+    }
+
+    static void writeReply(DataOutput out, EvaluatedGameState result) throws IOException {
+        out.writeInt(result.getBestMove().getLastMove());
+        final Map<Player, Double> scores = result.getEvaluation().getScores();
+        out.writeByte(scores.size());
+        for (Map.Entry<Player, Double> entry : scores.entrySet()) {
+            out.writeByte(entry.getKey().ordinal());
+            out.writeDouble(entry.getValue());
+        }
+    }
+
+    /**
+     * @param position the position that was sent, to play the best move on
+     */
+    static EvaluatedGameState readReply(DataInput in, GameState position, int depth) throws IOException {
+        final int bestMove = in.readInt();
+        final int nScores = in.readUnsignedByte();
+        final EnumMap<Player, Double> scores = new EnumMap<>(Player.class);
+        for (int k = 0; k < nScores; k++) {
+            scores.put(Player.values()[in.readUnsignedByte()], in.readDouble());
+        }
+
+        final GameState bestMoveState;
+        if (bestMove != Move.NONE) {
+            bestMoveState = position.play(bestMove).orElseThrow(() ->
+                    new IOException("Worker replied with an illegal move: " + Move.unpack(bestMove)));
+        } else {
+            bestMoveState = depth == 0 ? position : position.pass();
+        }
+        return new EvaluatedGameState(bestMoveState, new Evaluation(scores));
+    }
+}
@@ -0,0 +1,113 @@
+package engine.distributed;
+
+import engine.BoardEvaluator;
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.GameState;
+import engine.evaluators.CachingEvaluator;
+import engine.evaluators.MaterialMinusOthersEvaluator;
+import engine.record.PositionCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * Searches positions sent by a {@link DistributedSearch} coordinator. Each connection gets its own thread,
+ * and they all share one engine, so work from one unit can serve another. Its evaluator has to score
+ * positions just as the coordinator's does, seed included, or the units' results won't agree.
+ */
+public class SearchWorker implements Closeable {
+    private final Engine engine;
+    private final ServerSocket serverSocket;
+
+    /**
+     * Listen on PORT (0 for any free one) on the loopback interface.
+     */
+    public SearchWorker(Engine engine, int port) throws IOException {
+        this.engine = engine;
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accept connections in the background until closed.
+     */
+    public SearchWorker start() {
+        final Thread acceptor = new Thread(this::acceptConnections, "search-worker-" + this.getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    private void acceptConnections() {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                final Socket socket = this.serverSocket.accept();
+                final Thread handler = new Thread(() -> this.serve(socket), "search-worker-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (SocketException e) {
+                // Closed.
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                final int depth;
+                try {
+                    depth = in.readUnsignedByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                final GameState position = PositionCodec.read(in);
+                final EvaluatedGameState result = this.engine.evaluate(position, depth, false);
+                Protocol.writeReply(out, result);
+                out.flush();
+            }
+        } catch (Exception e) {
+            // The coordinator will give the unit to someone else.
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.serverSocket.close();
+    }
+
+    /**
+     * Usage: SearchWorker PORT [TOP_N_VARIATIONS] [CACHE_MEGABYTES] [SEED]
+     * SEED is the coordinator's evaluator seed.
+     */
+    public static void main(String[] args) throws Exception {
+        final int port = Integer.parseInt(args[0]);
+        final int topNVariations = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final long cacheBytes = args.length > 2 ? Long.parseLong(args[2]) << 20 : Runtime.getRuntime().maxMemory() / 2;
+        final long seed = args.length > 3 ? Long.parseLong(args[3]) : MaterialMinusOthersEvaluator.DEFAULT_SEED;
+        final BoardEvaluator evaluator = new CachingEvaluator(new MaterialMinusOthersEvaluator(seed), 20);
+        final Engine engine = Engine.withMemoryBudget(evaluator, topNVariations, cacheBytes);
+        try (SearchWorker worker = new SearchWorker(engine, port)) {
+            System.out.println("Listening on port " + worker.getPort());
+            worker.acceptConnections();
+        }
+    }
+}
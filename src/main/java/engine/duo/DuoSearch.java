@@ -0,0 +1,462 @@
+package engine.duo;
+
+import engine.AnytimeSearch;
+import engine.EvaluatedGameState;
+import engine.Evaluation;
+import engine.GameState;
+import engine.Move;
+import game.PieceRegistry;
+import model.board.Board;
+import model.piece.Piece;
+import model.player.Player;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Alpha-beta search for two players on boards of at most 256 cells, made for the 14x14 two-player variant
+ * ({@link GameState#newDuoGame()}). With only two players the game is zero-sum, so negamax with pruning
+ * applies directly, where the general engine has to search every line it considers in full.
+ *
+ * Positions are searched as bitboards, four longs per player, with moves made and unmade in place. Legal
+ * anchors for a piece come out of a few shifts and ANDs over the whole board, the same way as in
+ * {@link model.board.PlacementMasks}, and no {@link GameState} is built until the search is over.
+ *
+ * Positions are scored from the mover's side: squares covered plus {@link #CORNER_WEIGHT} per free
+ * corner, minus the same for the opponent. Finished games count squares only.
+ */
+public class DuoSearch {
+    private static final int N_WORDS = 4;
+    public static final int MAX_CELLS = 64 * N_WORDS;
+    /**
+     * Worth of a cell a player could start a piece from, in squares.
+     */
+    static final double CORNER_WEIGHT = 0.5;
+
+    private final int nRows;
+    private final int nCols;
+    private final long[] onBoard = new long[N_WORDS];
+    private final long[] notFirstCol = new long[N_WORDS];
+    private final long[] notLastCol = new long[N_WORDS];
+    /**
+     * Cell offsets of each oriented piece's squares from its anchor, by orientation ID.
+     */
+    private final int[][] offsets = new int[PieceRegistry.N_ORIENTATIONS][];
+    /**
+     * Anchors that keep each oriented piece on the board, by orientation ID.
+     */
+    private final long[][] anchorsInBounds = new long[PieceRegistry.N_ORIENTATIONS][];
+    /**
+     * Piece IDs, biggest pieces first, which is the order moves are tried in.
+     */
+    private final int[] pieceOrder;
+
+    public DuoSearch(int nRows, int nCols) {
+        if (nRows * nCols > MAX_CELLS) {
+            throw new IllegalArgumentException("Board too big for " + N_WORDS + " words: " + nRows + "x" + nCols);
+        }
+        this.nRows = nRows;
+        this.nCols = nCols;
+        for (int cell = 0; cell < nRows * nCols; cell++) {
+            set(this.onBoard, cell);
+            if (cell % nCols != 0) {
+                set(this.notFirstCol, cell);
+            }
+            if (cell % nCols != nCols - 1) {
+                set(this.notLastCol, cell);
+            }
+        }
+        for (int orientationId = 0; orientationId < PieceRegistry.N_ORIENTATIONS; orientationId++) {
+            final Piece piece = PieceRegistry.orientedPiece(orientationId);
+            this.offsets[orientationId] = new int[piece.nSquares];
+            for (int k = 0; k < piece.nSquares; k++) {
+                this.offsets[orientationId][k] = piece.rowLocations.get(k) * nCols + piece.colLocations.get(k);
+            }
+            this.anchorsInBounds[orientationId] = new long[N_WORDS];
+            for (int i = 0; i + piece.nRows <= nRows; i++) {
+                for (int j = 0; j + piece.nCols <= nCols; j++) {
+                    set(this.anchorsInBounds[orientationId], i * nCols + j);
+                }
+            }
+        }
+        this.pieceOrder = IntStream.range(0, PieceRegistry.N_PIECES).boxed()
+                .sorted((a, b) -> PieceRegistry.piece(b).nSquares - PieceRegistry.piece(a).nSquares)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * @return true for positions of this board's size with at most two players left to move
+     */
+    public boolean applies(GameState state) {
+        final Board board = state.getBoard();
+        return board.getNRows() == this.nRows && board.getNCols() == this.nCols
+                && !state.isOver() && state.getNextPlayers().size() <= 2;
+    }
+
+    /**
+     * Search DEPTH plies ahead of STATE (passes don't count).
+     * @return the best move and its value to each player left in the game
+     */
+    public EvaluatedGameState search(GameState state, int depth) {
+        final Searcher searcher = new Searcher(state, depth);
+        final List<Player> players = state.getNextPlayers();
+        final EnumMap<Player, Double> scores = new EnumMap<>(Player.class);
+        final int bestMove = searcher.searchRoot();
+        scores.put(players.get(0), searcher.rootValue);
+        if (players.size() > 1) {
+            scores.put(players.get(1), -searcher.rootValue);
+        }
+        final Evaluation evaluation = new Evaluation(scores);
+
+        if (bestMove == NO_MOVE) {
+            return new EvaluatedGameState(depth == 0 ? state : state.pass(), evaluation);
+        }
+        final int anchor = bestMove & 0xFF;
+        final int packedMove = Move.pack(bestMove >>> 8, anchor / this.nCols, anchor % this.nCols);
+        final GameState played = state.play(packedMove).orElseThrow(() ->
+                new IllegalStateException("Search chose an illegal move: " + Move.unpack(packedMove)));
+        return new EvaluatedGameState(played, evaluation);
+    }
+
+    /**
+     * @return every legal move for the player to move in STATE, packed as in {@link Move#pack}. For tests.
+     */
+    int[] legalMoves(GameState state) {
+        final Searcher searcher = new Searcher(state, 0);
+        final int nMoves = searcher.generate(0, 0);
+        final int[] moves = new int[nMoves];
+        for (int k = 0; k < nMoves; k++) {
+            final int move = searcher.moves[0][k];
+            final int anchor = move & 0xFF;
+            moves[k] = Move.pack(move >>> 8, anchor / this.nCols, anchor % this.nCols);
+        }
+        return moves;
+    }
+
+    /**
+     * Inside the search, moves are orientationId << 8 | anchor cell, and this means none.
+     */
+    private static final int NO_MOVE = -1;
+
+    /**
+     * One search's mutable state, so that a DuoSearch can serve several threads at once.
+     */
+    private class Searcher {
+        /**
+         * Squares of each side, side 0 being the player to move at the root.
+         */
+        final long[][] occupied = new long[2][N_WORDS];
+        final int[] unplayed = new int[2];
+        final int[] startingCell = new int[2];
+        /**
+         * Squares covered by players who are out of the game.
+         */
+        final long[] blocked = new long[N_WORDS];
+        final int maxDepth;
+
+        // Scratch space for each ply, so the search allocates nothing once it gets going.
+        final long[][] open;
+        final long[][] corners;
+        final long[][] anchors;
+        final long[][] touching;
+        final long[] scratch = new long[N_WORDS];
+        final long[] neighbors = new long[N_WORDS];
+        final int[][] moves;
+
+        double rootValue;
+
+        Searcher(GameState state, int maxDepth) {
+            final Board board = state.getBoard();
+            final List<Player> players = state.getNextPlayers();
+            for (int side = 0; side < 2; side++) {
+                final Player player = side < players.size() ? players.get(side) : Player.NO_PLAYER;
+                this.startingCell[side] = -1;
+                if (player == Player.NO_PLAYER) {
+                    continue;
+                }
+                this.unplayed[side] = state.unplayedPieces(player);
+                this.startingCell[side] = board.startingCell(player);
+                for (int i = 0; i < nRows; i++) {
+                    for (int j = 0; j < nCols; j++) {
+                        if (board.getSquare(i, j) == player) {
+                            set(this.occupied[side], i * nCols + j);
+                        }
+                    }
+                }
+            }
+            // Squares of players already out of the game are just in the way.
+            for (int i = 0; i < nRows; i++) {
+                for (int j = 0; j < nCols; j++) {
+                    final Player owner = board.getSquare(i, j);
+                    if (owner != Player.NO_PLAYER && !players.contains(owner)) {
+                        set(this.blocked, i * nCols + j);
+                    }
+                }
+            }
+
+            this.maxDepth = maxDepth;
+            // Passes don't use up depth, and once a player is out, every other ply is one of theirs.
+            final int nPlies = 2 * maxDepth + 2;
+            this.open = new long[nPlies][N_WORDS];
+            this.corners = new long[nPlies][N_WORDS];
+            this.anchors = new long[nPlies][N_WORDS];
+            this.touching = new long[nPlies][N_WORDS];
+            this.moves = new int[nPlies][];
+        }
+
+        int searchRoot() {
+            if (this.maxDepth == 0) {
+                this.rootValue = this.evaluate(0, 0);
+                return NO_MOVE;
+            }
+            final int nMoves = this.generate(0, 0);
+            if (nMoves == 0) {
+                this.rootValue = this.afterPass(0, this.maxDepth, -Double.MAX_VALUE, Double.MAX_VALUE, 0);
+                return NO_MOVE;
+            }
+            int bestMove = NO_MOVE;
+            double alpha = -Double.MAX_VALUE;
+            for (int k = 0; k < nMoves; k++) {
+                final int move = this.moves[0][k];
+                this.make(0, move);
+                final double value = -this.negamax(1, this.maxDepth - 1, -Double.MAX_VALUE, -alpha, 1);
+                this.unmake(0, move);
+                if (bestMove == NO_MOVE || value > alpha) {
+                    alpha = value;
+                    bestMove = move;
+                }
+            }
+            this.rootValue = alpha;
+            return bestMove;
+        }
+
+        double negamax(int side, int depth, double alpha, double beta, int ply) {
+            AnytimeSearch.checkCurrent();
+            if (depth == 0) {
+                return this.evaluate(side, ply);
+            }
+            final int nMoves = this.generate(side, ply);
+            if (nMoves == 0) {
+                return this.afterPass(side, depth, alpha, beta, ply);
+            }
+            for (int k = 0; k < nMoves; k++) {
+                final int move = this.moves[ply][k];
+                this.make(side, move);
+                final double value = -this.negamax(1 - side, depth - 1, -beta, -alpha, ply + 1);
+                this.unmake(side, move);
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+            return alpha;
+        }
+
+        /**
+         * SIDE has no move, and never will again since the board only fills up. The opponent plays on
+         * alone, or the game is over.
+         */
+        double afterPass(int side, int depth, double alpha, double beta, int ply) {
+            this.placementMasks(1 - side, ply);
+            if (!this.anyMove(1 - side, ply)) {
+                return this.squares(side) - this.squares(1 - side);
+            }
+            final int passedUnplayed = this.unplayed[side];
+            // Take the passed player's pieces away so they keep passing without searching for moves.
+            this.unplayed[side] = 0;
+            final double value = -this.negamax(1 - side, depth, -beta, -alpha, ply + 1);
+            this.unplayed[side] = passedUnplayed;
+            return value;
+        }
+
+        double evaluate(int side, int ply) {
+            this.placementMasks(side, ply);
+            final double ownCorners = this.unplayed[side] == 0 ? 0 : bitCount(this.corners[ply]);
+            this.placementMasks(1 - side, ply);
+            final double otherCorners = this.unplayed[1 - side] == 0 ? 0 : bitCount(this.corners[ply]);
+            return this.squares(side) - this.squares(1 - side) + CORNER_WEIGHT * (ownCorners - otherCorners);
+        }
+
+        int squares(int side) {
+            return bitCount(this.occupied[side]);
+        }
+
+        /**
+         * Fill open[PLY] and corners[PLY] for SIDE, as in {@link model.board.PlacementMasks}.
+         */
+        void placementMasks(int side, int ply) {
+            final long[] own = this.occupied[side];
+            final long[] other = this.occupied[1 - side];
+            final long[] open = this.open[ply];
+            final long[] corners = this.corners[ply];
+
+            // Cells sharing a side with our squares.
+            Arrays.fill(this.neighbors, 0);
+            this.orShifted(own, notLastCol, 1);
+            this.orShifted(own, notFirstCol, -1);
+            this.orShifted(own, onBoard, nCols);
+            this.orShifted(own, onBoard, -nCols);
+            for (int w = 0; w < N_WORDS; w++) {
+                open[w] = onBoard[w] & ~own[w] & ~other[w] & ~this.blocked[w] & ~this.neighbors[w];
+            }
+
+            if (isEmpty(own)) {
+                Arrays.fill(corners, 0);
+                final int start = this.startingCell[side];
+                if (start >= 0 && get(open, start)) {
+                    set(corners, start);
+                }
+                return;
+            }
+            // Cells touching our squares corner to corner.
+            Arrays.fill(this.neighbors, 0);
+            this.orShifted(own, notLastCol, nCols + 1);
+            this.orShifted(own, notFirstCol, nCols - 1);
+            this.orShifted(own, notFirstCol, -nCols - 1);
+            this.orShifted(own, notLastCol, -nCols + 1);
+            for (int w = 0; w < N_WORDS; w++) {
+                corners[w] = open[w] & this.neighbors[w];
+            }
+        }
+
+        /**
+         * neighbors |= (SOURCE & KEEP) shifted SHIFT cells on (back if negative), staying on the board.
+         */
+        void orShifted(long[] source, long[] keep, int shift) {
+            for (int w = 0; w < N_WORDS; w++) {
+                this.scratch[w] = source[w] & keep[w];
+            }
+            for (int w = 0; w < N_WORDS; w++) {
+                this.neighbors[w] |= (shift >= 0 ? shiftedUp(this.scratch, w, shift)
+                        : shiftedDown(this.scratch, w, -shift)) & onBoard[w];
+            }
+        }
+
+        /**
+         * @return number of moves for SIDE, placed in moves[PLY], biggest pieces first
+         */
+        int generate(int side, int ply) {
+            this.placementMasks(side, ply);
+            int nMoves = 0;
+            int[] moves = this.moves[ply];
+            for (int pieceId : pieceOrder) {
+                if ((this.unplayed[side] & (1 << pieceId)) == 0) {
+                    continue;
+                }
+                for (int orientationId : PieceRegistry.orientations(pieceId)) {
+                    final long[] anchors = this.legalAnchors(orientationId, ply);
+                    for (int w = 0; w < N_WORDS; w++) {
+                        for (long bits = anchors[w]; bits != 0; bits &= bits - 1) {
+                            if (moves == null || nMoves == moves.length) {
+                                moves = moves == null ? new int[256] : Arrays.copyOf(moves, 2 * moves.length);
+                                this.moves[ply] = moves;
+                            }
+                            moves[nMoves++] = orientationId << 8 | (w << 6) + Long.numberOfTrailingZeros(bits);
+                        }
+                    }
+                }
+            }
+            return nMoves;
+        }
+
+        /**
+         * @return true if SIDE can place anything, given masks already filled for PLY
+         */
+        boolean anyMove(int side, int ply) {
+            for (int pieces = this.unplayed[side]; pieces != 0; pieces &= pieces - 1) {
+                for (int orientationId : PieceRegistry.orientations(Integer.numberOfTrailingZeros(pieces))) {
+                    if (!isEmpty(this.legalAnchors(orientationId, ply))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        long[] legalAnchors(int orientationId, int ply) {
+            final long[] anchors = this.anchors[ply];
+            final long[] touching = this.touching[ply];
+            System.arraycopy(anchorsInBounds[orientationId], 0, anchors, 0, N_WORDS);
+            Arrays.fill(touching, 0);
+            for (int offset : offsets[orientationId]) {
+                for (int w = 0; w < N_WORDS; w++) {
+                    anchors[w] &= shiftedDown(this.open[ply], w, offset);
+                    touching[w] |= shiftedDown(this.corners[ply], w, offset);
+                }
+            }
+            for (int w = 0; w < N_WORDS; w++) {
+                anchors[w] &= touching[w];
+            }
+            return anchors;
+        }
+
+        void make(int side, int move) {
+            final int orientationId = move >>> 8;
+            final int anchor = move & 0xFF;
+            for (int offset : offsets[orientationId]) {
+                set(this.occupied[side], anchor + offset);
+            }
+            this.unplayed[side] &= ~(1 << PieceRegistry.pieceOf(orientationId));
+        }
+
+        void unmake(int side, int move) {
+            final int orientationId = move >>> 8;
+            final int anchor = move & 0xFF;
+            for (int offset : offsets[orientationId]) {
+                clear(this.occupied[side], anchor + offset);
+            }
+            this.unplayed[side] |= 1 << PieceRegistry.pieceOf(orientationId);
+        }
+    }
+
+    /**
+     * @return word W of SOURCE >>> SHIFT (bits SHIFT further on), zero past the end
+     */
+    private static long shiftedDown(long[] source, int w, int shift) {
+        final int from = w + (shift >>> 6);
+        final int bitShift = shift & 63;
+        final long low = from < N_WORDS ? source[from] >>> bitShift : 0L;
+        if (bitShift == 0 || from + 1 >= N_WORDS) {
+            return low;
+        }
+        return low | source[from + 1] << (64 - bitShift);
+    }
+
+    /**
+     * @return word W of SOURCE << SHIFT (bits SHIFT further back), zero before the start
+     */
+    private static long shiftedUp(long[] source, int w, int shift) {
+        final int from = w - (shift >>> 6);
+        final int bitShift = shift & 63;
+        final long high = from >= 0 ? source[from] << bitShift : 0L;
+        if (bitShift == 0 || from - 1 < 0) {
+            return high;
+        }
+        return high | source[from - 1] >>> (64 - bitShift);
+    }
+
+    private static void set(long[] mask, int cell) {
+        mask[cell >>> 6] |= 1L << cell;
+    }
+
+    private static void clear(long[] mask, int cell) {
+        mask[cell >>> 6] &= ~(1L << cell);
+    }
+
+    private static boolean get(long[] mask, int cell) {
+        return (mask[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    private static boolean isEmpty(long[] mask) {
+        return (mask[0] | mask[1] | mask[2] | mask[3]) == 0;
+    }
+
+    private static int bitCount(long[] mask) {
+        return Long.bitCount(mask[0]) + Long.bitCount(mask[1]) + Long.bitCount(mask[2]) + Long.bitCount(mask[3]);
+    }
+}
@@ -0,0 +1,145 @@
+package engine.evaluators;
+
+import engine.BoardEvaluator;
+import engine.Evaluation;
+import engine.GameState;
+import model.player.Player;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers another evaluator's scores by position hash, since the search scores the same positions many
+ * times over: once among their siblings in the shallow pass, again as leaves, and again wherever they
+ * transpose.
+ *
+ * One slot per hash bucket, and a new entry simply overwrites the old, so there are no locks and no
+ * bookkeeping; a lost entry only costs a re-evaluation. Entries are immutable, so a reader sees either the
+ * old one or the new one. Only worth it in front of evaluators that are deterministic in the position.
+ */
+public class CachingEvaluator implements BoardEvaluator {
+    private final BoardEvaluator evaluator;
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static class Entry {
+        final long positionHash;
+        /**
+         * Indexed by player ordinal, NaN for players the evaluator has no score for.
+         */
+        final double[] scores;
+
+        Entry(long positionHash, double[] scores) {
+            this.positionHash = positionHash;
+            this.scores = scores;
+        }
+    }
+
+    /**
+     * @param logSlots the cache holds 2^LOG_SLOTS entries
+     */
+    public CachingEvaluator(BoardEvaluator evaluator, int logSlots) {
+        this.evaluator = evaluator;
+        this.slots = new AtomicReferenceArray<>(1 << logSlots);
+        this.mask = (1 << logSlots) - 1;
+    }
+
+    @Override
+    public Evaluation evaluate(GameState state) {
+        final long hash = state.getPositionHash();
+        final Entry entry = this.find(hash);
+        if (entry != null) {
+            return evaluationOf(entry.scores);
+        }
+        final Evaluation evaluation = this.evaluator.evaluate(state);
+        final double[] scores = new double[N_SCORE_ROWS];
+        for (Player player : Player.values()) {
+            scores[player.ordinal()] = evaluation.getScores().getOrDefault(player, Double.NaN);
+        }
+        this.store(hash, scores);
+        return evaluation;
+    }
+
+    /**
+     * Cached children are filled in from the cache; the rest go to the evaluator as one smaller batch.
+     */
+    @Override
+    public void evaluateChildren(GameState parent, List<GameState> children, double[] scores) {
+        final int nChildren = children.size();
+        final List<GameState> missed = new ArrayList<>();
+        final int[] missedIndices = new int[nChildren];
+        for (int i = 0; i < nChildren; i++) {
+            final Entry entry = this.find(children.get(i).getPositionHash());
+            if (entry == null) {
+                missedIndices[missed.size()] = i;
+                missed.add(children.get(i));
+                continue;
+            }
+            for (int p = 0; p < N_SCORE_ROWS; p++) {
+                scores[p * nChildren + i] = entry.scores[p];
+            }
+        }
+        if (missed.isEmpty()) {
+            return;
+        }
+
+        final int nMissed = missed.size();
+        final double[] missedScores = new double[N_SCORE_ROWS * nMissed];
+        this.evaluator.evaluateChildren(parent, missed, missedScores);
+        for (int m = 0; m < nMissed; m++) {
+            final double[] entryScores = new double[N_SCORE_ROWS];
+            for (int p = 0; p < N_SCORE_ROWS; p++) {
+                entryScores[p] = missedScores[p * nMissed + m];
+                scores[p * nChildren + missedIndices[m]] = entryScores[p];
+            }
+            this.store(missed.get(m).getPositionHash(), entryScores);
+        }
+    }
+
+    /**
+     * @return lookups answered from the cache so far
+     */
+    public long hits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return lookups that went to the evaluator so far
+     */
+    public long misses() {
+        return this.misses.sum();
+    }
+
+    private Entry find(long hash) {
+        final Entry entry = this.slots.get(this.slotOf(hash));
+        if (entry != null && entry.positionHash == hash) {
+            this.hits.increment();
+            return entry;
+        }
+        this.misses.increment();
+        return null;
+    }
+
+    private void store(long hash, double[] scores) {
+        this.slots.lazySet(this.slotOf(hash), new Entry(hash, scores));
+    }
+
+    private int slotOf(long hash) {
+        return (int) (hash ^ hash >>> 32) & this.mask;
+    }
+
+    private static Evaluation evaluationOf(double[] scores) {
+        final EnumMap<Player, Double> evals = new EnumMap<>(Player.class);
+        for (Player player : Player.values()) {
+            if (!Double.isNaN(scores[player.ordinal()])) {
+                evals.put(player, scores[player.ordinal()]);
+            }
+        }
+        return new Evaluation(evals);
+    }
+}
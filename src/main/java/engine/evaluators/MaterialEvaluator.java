@@ -6,6 +6,8 @@ import engine.GameState;
 import model.player.Player;
 
 import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 public class MaterialEvaluator implements BoardEvaluator {
     @Override
@@ -15,4 +17,23 @@ public class MaterialEvaluator implements BoardEvaluator {
                 .forEach(entry -> evals.put(entry.getKey(), entry.getValue().doubleValue()));
         return new Evaluation(evals);
     }
+
+    /**
+     * Each child has the parent's counts, plus the mover's new squares (taken from the empty ones).
+     */
+    @Override
+    public void evaluateChildren(GameState parent, List<GameState> children, double[] scores) {
+        final int nChildren = children.size();
+        final double[] added = SiblingDeltas.squaresAdded(children);
+        final Map<Player, Integer> parentCounts = parent.getBoard().getNSquaresOccupied();
+        final Player mover = parent.nowPlaying();
+        for (Player player : Player.values()) {
+            final int offset = player.ordinal() * nChildren;
+            final double count = parentCounts.get(player);
+            final double sign = player == mover ? 1 : player == Player.NO_PLAYER ? -1 : 0;
+            for (int i = 0; i < nChildren; i++) {
+                scores[offset + i] = count + sign * added[i];
+            }
+        }
+    }
 }
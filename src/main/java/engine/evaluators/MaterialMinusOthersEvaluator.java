@@ -4,34 +4,87 @@ import engine.BoardEvaluator;
 import engine.Evaluation;
 import engine.GameState;
 import lombok.AllArgsConstructor;
+import model.board.Zobrist;
 import model.player.Player;
 
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
+/**
+ * Squares of one's own minus everyone else's, plus a little noise to break ties between otherwise equal
+ * moves. The noise is a hash of the position and a seed rather than a draw from a shared generator, so the
+ * same position always scores the same under the same seed, and threads evaluating in parallel have nothing
+ * to contend on.
+ */
 @AllArgsConstructor
 public class MaterialMinusOthersEvaluator implements BoardEvaluator {
-    Random random;
+    /**
+     * Seed for tools run without one, so that runs can be repeated.
+     */
+    public static final long DEFAULT_SEED = 0;
+
+    /**
+     * Picks the noise, e.g. once per game. Same seed, same scores.
+     */
+    long seed;
 
     @Override
     public Evaluation evaluate(GameState state) {
         EnumMap<Player, Double> evals = new EnumMap<>(Player.class);
         Map<Player, Integer> squaresOccupied = state.getBoard().getNSquaresOccupied();
         for (Player player : squaresOccupied.keySet()) {
-            double eval = random.nextDouble() / 2;
+            int material = 0;
             for (Player otherPlayer : squaresOccupied.keySet()) {
                 if (otherPlayer.equals(Player.NO_PLAYER)) {
                     continue;
                 }
                 if (otherPlayer.equals(player)) {
-                    eval += squaresOccupied.get(otherPlayer);
+                    material += squaresOccupied.get(otherPlayer);
                 } else {
-                    eval -= squaresOccupied.get(otherPlayer);
+                    material -= squaresOccupied.get(otherPlayer);
                 }
             }
-            evals.put(player, eval);
+            // Noise last, as in evaluateChildren, so that both come out the same to the last bit.
+            evals.put(player, material + this.noise(state.getPositionHash(), player));
         }
         return new Evaluation(evals);
     }
+
+    /**
+     * The mover's new squares count for them and against everyone else.
+     */
+    @Override
+    public void evaluateChildren(GameState parent, List<GameState> children, double[] scores) {
+        final int nChildren = children.size();
+        final double[] added = SiblingDeltas.squaresAdded(children);
+        final Map<Player, Integer> parentCounts = parent.getBoard().getNSquaresOccupied();
+        final Player mover = parent.nowPlaying();
+        double total = 0;
+        for (Player player : Player.values()) {
+            if (player != Player.NO_PLAYER) {
+                total += parentCounts.get(player);
+            }
+        }
+        for (Player player : Player.values()) {
+            final int offset = player.ordinal() * nChildren;
+            final double base = player == Player.NO_PLAYER ? -total : 2 * parentCounts.get(player) - total;
+            final double sign = player == mover ? 1 : -1;
+            for (int i = 0; i < nChildren; i++) {
+                scores[offset + i] = base + sign * added[i];
+            }
+            for (int i = 0; i < nChildren; i++) {
+                scores[offset + i] += this.noise(children.get(i).getPositionHash(), player);
+            }
+        }
+    }
+
+    /**
+     * @return noise in [0, 0.5) for PLAYER's score at the position hashing to POSITION_HASH
+     */
+    private double noise(long positionHash, Player player) {
+        final long z = Zobrist.mix(positionHash ^ this.seed ^ player.ordinal());
+        // Top 53 bits as a double in [0, 1), as Random.nextDouble does.
+        return (z >>> 11) * 0x1.0p-53 / 2;
+    }
 }
@@ -0,0 +1,27 @@
+package engine.evaluators;
+
+import engine.GameState;
+import engine.Move;
+import game.PieceRegistry;
+
+import java.util.List;
+
+/**
+ * What tells sibling positions apart, for evaluators that score children as deltas from their parent.
+ */
+class SiblingDeltas {
+    private SiblingDeltas() {
+    }
+
+    /**
+     * @return squares the mover covered to reach each child (0 for a pass)
+     */
+    static double[] squaresAdded(List<GameState> children) {
+        final double[] added = new double[children.size()];
+        for (int i = 0; i < added.length; i++) {
+            final int move = children.get(i).getLastMove();
+            added[i] = move == Move.NONE ? 0 : PieceRegistry.orientedPiece(Move.orientationOf(move)).nSquares;
+        }
+        return added;
+    }
+}
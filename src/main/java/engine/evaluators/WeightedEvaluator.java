@@ -0,0 +1,131 @@
+package engine.evaluators;
+
+import engine.BoardEvaluator;
+import engine.Evaluation;
+import engine.GameState;
+import game.PieceRegistry;
+import model.board.Board;
+import model.player.Player;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Linear combination of a few board features, each measured for the player and summed over their
+ * opponents. The weights are meant to be fitted from played games (see {@link engine.tuning.WeightTuner}).
+ */
+public class WeightedEvaluator implements BoardEvaluator {
+    /**
+     * Feature names, in the order of the weights.
+     */
+    public static final List<String> FEATURES = List.of(
+            "squares", "opponentSquares",
+            "corners", "opponentCorners",
+            "reachable", "opponentReachable",
+            "unplayedSquares");
+    public static final int N_FEATURES = FEATURES.size();
+
+    /**
+     * Weights that score a position by material alone, like {@link MaterialMinusOthersEvaluator} without
+     * the noise. A reasonable place to start tuning.
+     */
+    public static final double[] MATERIAL_WEIGHTS = {1, -1, 0, 0, 0, 0, 0};
+
+    private static final Player[] PLAYERS = GameState.STARTING_ORDER.toArray(new Player[0]);
+
+    private final double[] weights;
+
+    public WeightedEvaluator(double[] weights) {
+        if (weights.length != N_FEATURES) {
+            throw new IllegalArgumentException("Expected " + N_FEATURES + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    public double[] getWeights() {
+        return this.weights.clone();
+    }
+
+    @Override
+    public Evaluation evaluate(GameState state) {
+        final double[][] features = features(state);
+        final EnumMap<Player, Double> evals = new EnumMap<>(Player.class);
+        for (int p = 0; p < PLAYERS.length; p++) {
+            double eval = 0;
+            for (int k = 0; k < N_FEATURES; k++) {
+                eval += this.weights[k] * features[p][k];
+            }
+            evals.put(PLAYERS[p], eval);
+        }
+        return new Evaluation(evals);
+    }
+
+    /**
+     * @return features of STATE for each player in {@link GameState#STARTING_ORDER}, in the order of
+     *  {@link #FEATURES}
+     */
+    public static double[][] features(GameState state) {
+        final Board board = state.getBoard();
+        // Own measurements first, then fill in the opponents' totals from them.
+        final double[][] features = new double[PLAYERS.length][N_FEATURES];
+        final double[] totals = new double[N_FEATURES];
+        for (int p = 0; p < PLAYERS.length; p++) {
+            final Player player = PLAYERS[p];
+            features[p][0] = board.getNSquaresOccupied().get(player);
+            features[p][2] = board.nCornerCells(player);
+            features[p][4] = board.reachableCells(player).cardinality();
+            features[p][6] = unplayedSquares(state.unplayedPieces(player));
+            for (int k = 0; k < N_FEATURES; k += 2) {
+                totals[k] += features[p][k];
+            }
+        }
+        for (int p = 0; p < PLAYERS.length; p++) {
+            for (int k = 1; k < N_FEATURES; k += 2) {
+                features[p][k] = totals[k - 1] - features[p][k - 1];
+            }
+        }
+        return features;
+    }
+
+    private static int unplayedSquares(int unplayedMask) {
+        int nSquares = 0;
+        for (int mask = unplayedMask; mask != 0; mask &= mask - 1) {
+            nSquares += PieceRegistry.piece(Integer.numberOfTrailingZeros(mask)).nSquares;
+        }
+        return nSquares;
+    }
+
+    /**
+     * Write the weights as "name value" lines.
+     */
+    public void save(Path path) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (int k = 0; k < N_FEATURES; k++) {
+            lines.add(FEATURES.get(k) + " " + this.weights[k]);
+        }
+        Files.write(path, lines);
+    }
+
+    /**
+     * Read weights written by {@link #save}. Features missing from the file get weight 0.
+     */
+    public static WeightedEvaluator load(Path path) throws IOException {
+        final double[] weights = new double[N_FEATURES];
+        for (String line : Files.readAllLines(path)) {
+            final String[] fields = line.trim().split("\\s+");
+            if (fields.length != 2) {
+                continue;
+            }
+            final int k = FEATURES.indexOf(fields[0]);
+            if (k < 0) {
+                throw new IOException("Unknown feature " + fields[0] + " in " + path);
+            }
+            weights[k] = Double.parseDouble(fields[1]);
+        }
+        return new WeightedEvaluator(weights);
+    }
+}
@@ -0,0 +1,255 @@
+package engine.persistent;
+
+import engine.EvaluatedGameState;
+import engine.Evaluation;
+import engine.GameState;
+import model.board.Zobrist;
+import model.player.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Transposition table tier that lives in a memory-mapped file, so search results survive the process and
+ * later runs over overlapping positions start warm. Sits behind the engine's in-memory table.
+ *
+ * The file is a fixed array of two-record buckets indexed by canonical position hash. A record holds the
+ * search depth, the hash of the best move and the scores, all in the canonical orientation (see
+ * {@link GameState#canonicalHash()}). Writes go straight into the mapping and are forced to disk every
+ * few stores and on close. Each record carries a checksum, so records torn by a crash read back as empty
+ * rather than as garbage.
+ *
+ * File layout (little endian):
+ * <pre>
+ *   header: int magic, int version, int nBuckets, int reserved
+ *   record: long positionHash, long bestMoveHash, int depth, float[5] scores (by Player ordinal),
+ *           int checksum, int padding
+ * </pre>
+ */
+public class PersistentTranspositionTable implements Closeable {
+    static final int MAGIC = 0x424C4B54; // "BLKT"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 48;
+    static final int RECORDS_PER_BUCKET = 2;
+    /**
+     * Most buckets a table can have, since the file is one mapping and a mapping is at most 2GB.
+     */
+    public static final int MAX_BUCKETS = (Integer.MAX_VALUE - HEADER_BYTES) / (RECORDS_PER_BUCKET * RECORD_BYTES);
+    private static final int N_LOCKS = 64;
+
+    private static final int BEST_MOVE_OFFSET = 8;
+    private static final int DEPTH_OFFSET = 16;
+    private static final int SCORES_OFFSET = 20;
+    private static final int CHECKSUM_OFFSET = 40;
+
+    private final MappedByteBuffer buffer;
+    private final int nBuckets;
+    /**
+     * Results shallower than this are cheaper to recompute than to store.
+     */
+    private final int minDepth;
+    /**
+     * Force the mapping to disk after this many stores.
+     */
+    private final int flushEvery;
+    private final Object[] locks = new Object[N_LOCKS];
+    private int storesSinceFlush;
+
+    private PersistentTranspositionTable(MappedByteBuffer buffer, int minDepth, int flushEvery) {
+        this.buffer = buffer;
+        this.nBuckets = buffer.getInt(8);
+        this.minDepth = minDepth;
+        this.flushEvery = flushEvery;
+        for (int i = 0; i < N_LOCKS; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Open the table at PATH, creating it with room for N_BUCKETS buckets if it doesn't exist or isn't a
+     * valid table.
+     * @param nBuckets 1 to MAX_BUCKETS
+     */
+    public static PersistentTranspositionTable open(Path path, int nBuckets, int minDepth, int flushEvery)
+            throws IOException {
+        if (nBuckets < 1 || nBuckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("nBuckets must be 1 to " + MAX_BUCKETS + ", not " + nBuckets);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            final boolean valid = hasValidHeader(channel);
+            if (!valid) {
+                file.setLength(0);
+                file.setLength(HEADER_BYTES + (long) nBuckets * RECORDS_PER_BUCKET * RECORD_BYTES);
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (!valid) {
+                buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, nBuckets).putInt(12, 0);
+                buffer.force();
+            }
+            return new PersistentTranspositionTable(buffer, minDepth, flushEvery);
+        }
+    }
+
+    private static boolean hasValidHeader(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            return false;
+        }
+        final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        return header.getInt(0) == MAGIC
+                && header.getInt(4) == VERSION
+                && header.getInt(8) >= 1 && header.getInt(8) <= MAX_BUCKETS
+                && channel.size() == HEADER_BYTES + (long) header.getInt(8) * RECORDS_PER_BUCKET * RECORD_BYTES;
+    }
+
+    /**
+     * @return the stored result for STATE searched to at least DEPTH, in STATE's own orientation
+     */
+    public Optional<EvaluatedGameState> lookup(GameState state, int depth) {
+        if (depth < this.minDepth) {
+            return Optional.empty();
+        }
+        final long key = state.canonicalHash();
+        final int bucket = this.bucketOf(key);
+        long bestMoveHash = 0L;
+        Evaluation evaluation = null;
+        synchronized (this.locks[bucket % N_LOCKS]) {
+            for (int k = 0; k < RECORDS_PER_BUCKET; k++) {
+                final int offset = this.recordOffset(bucket, k);
+                if (this.isValid(offset) && this.buffer.getLong(offset) == key
+                        && this.buffer.getInt(offset + DEPTH_OFFSET) >= depth) {
+                    bestMoveHash = this.buffer.getLong(offset + BEST_MOVE_OFFSET);
+                    evaluation = this.readEvaluation(offset);
+                    break;
+                }
+            }
+        }
+        if (evaluation == null) {
+            return Optional.empty();
+        }
+
+        // Stored in canonical orientation: map back if STATE is the other one.
+        for (GameState child : state.possibleMoves()) {
+            final long childHash = state.isCanonical() ? child.getPositionHash() : child.getTransposedHash();
+            if (childHash == bestMoveHash) {
+                return Optional.of(new EvaluatedGameState(child,
+                        state.isCanonical() ? evaluation : evaluation.relabelled(state.getBoard()::transposedPlayer)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Store RESULT, the outcome of searching STATE to DEPTH. Replaces the same position or an empty record,
+     * otherwise the shallower record in the bucket.
+     */
+    public void store(GameState state, int depth, EvaluatedGameState result) {
+        if (depth < this.minDepth) {
+            return;
+        }
+        final long key = state.canonicalHash();
+        final long bestMoveHash = state.isCanonical()
+                ? result.getBestMove().getPositionHash()
+                : result.getBestMove().getTransposedHash();
+        final Evaluation evaluation = state.isCanonical()
+                ? result.getEvaluation()
+                : result.getEvaluation().relabelled(state.getBoard()::transposedPlayer);
+
+        final int bucket = this.bucketOf(key);
+        synchronized (this.locks[bucket % N_LOCKS]) {
+            int victim = -1;
+            int victimDepth = Integer.MAX_VALUE;
+            for (int k = 0; k < RECORDS_PER_BUCKET; k++) {
+                final int offset = this.recordOffset(bucket, k);
+                if (!this.isValid(offset)) {
+                    if (victimDepth >= 0) {
+                        victim = offset;
+                        victimDepth = -1;
+                    }
+                } else if (this.buffer.getLong(offset) == key) {
+                    if (this.buffer.getInt(offset + DEPTH_OFFSET) > depth) {
+                        return;
+                    }
+                    victim = offset;
+                    break;
+                } else if (this.buffer.getInt(offset + DEPTH_OFFSET) < victimDepth) {
+                    victim = offset;
+                    victimDepth = this.buffer.getInt(offset + DEPTH_OFFSET);
+                }
+            }
+            this.writeRecord(victim, key, bestMoveHash, depth, evaluation);
+        }
+
+        synchronized (this) {
+            if (++this.storesSinceFlush >= this.flushEvery) {
+                this.storesSinceFlush = 0;
+                this.buffer.force();
+            }
+        }
+    }
+
+    public synchronized void flush() {
+        this.storesSinceFlush = 0;
+        this.buffer.force();
+    }
+
+    @Override
+    public void close() {
+        this.flush();
+    }
+
+    private int bucketOf(long key) {
+        return (int) Long.remainderUnsigned(key, this.nBuckets);
+    }
+
+    private int recordOffset(int bucket, int k) {
+        return HEADER_BYTES + (bucket * RECORDS_PER_BUCKET + k) * RECORD_BYTES;
+    }
+
+    private void writeRecord(int offset, long key, long bestMoveHash, int depth, Evaluation evaluation) {
+        this.buffer.putLong(offset, key);
+        this.buffer.putLong(offset + BEST_MOVE_OFFSET, bestMoveHash);
+        this.buffer.putInt(offset + DEPTH_OFFSET, depth);
+        final Map<Player, Double> scores = evaluation.getScores();
+        for (Player player : Player.values()) {
+            this.buffer.putFloat(offset + SCORES_OFFSET + 4 * player.ordinal(),
+                    scores.getOrDefault(player, 0.0).floatValue());
+        }
+        this.buffer.putInt(offset + CHECKSUM_OFFSET, this.checksum(offset));
+    }
+
+    private Evaluation readEvaluation(int offset) {
+        final EnumMap<Player, Double> scores = new EnumMap<>(Player.class);
+        for (Player player : Player.values()) {
+            scores.put(player, (double) this.buffer.getFloat(offset + SCORES_OFFSET + 4 * player.ordinal()));
+        }
+        return new Evaluation(scores);
+    }
+
+    private boolean isValid(int offset) {
+        return this.buffer.getInt(offset + CHECKSUM_OFFSET) == this.checksum(offset);
+    }
+
+    /**
+     * Mix every field of the record. A zeroed record never checks out, so fresh files read as empty.
+     */
+    private int checksum(int offset) {
+        long sum = Zobrist.mix(this.buffer.getLong(offset));
+        sum = Zobrist.mix(sum ^ this.buffer.getLong(offset + BEST_MOVE_OFFSET));
+        for (int i = DEPTH_OFFSET; i < CHECKSUM_OFFSET; i += 4) {
+            sum = Zobrist.mix(sum ^ this.buffer.getInt(offset + i));
+        }
+        return (int) (sum ^ (sum >>> 32)) | 1;
+    }
+}
@@ -0,0 +1,82 @@
+package engine.record;
+
+import engine.Move;
+import model.board.Board;
+import model.player.Player;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Constants and move encoding shared by {@link GameRecordWriter} and {@link GameRecordReader}.
+ *
+ * File layout (big endian):
+ * <pre>
+ *   header:   int magic, short version
+ *   record:   byte flags, short nPlies, [snapshot if flags has HAS_SNAPSHOT], short[nPlies] moves,
+ *             [labels if flags has HAS_LABELS]
+ *   snapshot: byte nRows, byte nCols, cells two per byte (Player ordinal, high nibble first),
+ *             byte nNextPlayers, byte[nNextPlayers] player ordinals, int[4] unplayed piece masks of A..D,
+ *             short turnNumber, short[4] starting cells of A..D (row * nCols + column, -1 for none)
+ *   labels:   short[4] final square counts of A..D, short nSamples,
+ *             nSamples * (short ply, float[4] search scores of A..D)
+ * </pre>
+ * A record without a snapshot starts from {@link engine.GameState#newGame()}. Each ply is the orientation ID
+ * in the top 7 bits and the anchor cell (row * nCols + column) in the low 9, or PASS. Labels are for training
+ * data: a sample's ply counts moves from the start, so ply 0 is the starting position.
+ */
+final class GameRecordFormat {
+    static final int MAGIC = 0x424C4B52; // "BLKR"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 6;
+    static final int HAS_SNAPSHOT = 1;
+    static final int HAS_LABELS = 2;
+    static final int N_RECORDED_PLAYERS = 4;
+    static final short PASS = (short) 0xFFFF;
+    static final int SAMPLE_BYTES = 2 + 4 * N_RECORDED_PLAYERS;
+
+    private static final int CELL_BITS = 9;
+    private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+
+    /**
+     * Largest a record can be: every ply used, and a snapshot of the biggest board the encoding allows.
+     */
+    static final int MAX_RECORD_BYTES = 3 + (2 + (CELL_MASK + 2) / 2 + 1 + N_RECORDED_PLAYERS
+            + 4 * N_RECORDED_PLAYERS + 2 + 2 * N_RECORDED_PLAYERS) + 2 * 0xFFFF
+            + (2 * N_RECORDED_PLAYERS + 2 + SAMPLE_BYTES * 0xFFFF);
+
+    private GameRecordFormat() {
+    }
+
+    /**
+     * @param startingCells each recorded player's starting cell (row * nCols + column), -1 for none
+     * @return starting points as {@link Board#Board(int, int, Map)} takes them
+     */
+    static Map<Player, int[]> startingPoints(int[] startingCells, int nCols) {
+        final Map<Player, int[]> startingPoints = new EnumMap<>(Player.class);
+        for (int ordinal = 0; ordinal < N_RECORDED_PLAYERS; ordinal++) {
+            if (startingCells[ordinal] >= 0) {
+                startingPoints.put(Player.values()[ordinal],
+                        new int[]{startingCells[ordinal] / nCols, startingCells[ordinal] % nCols});
+            }
+        }
+        return startingPoints;
+    }
+
+    static short encode(int packedMove, int nCols) {
+        if (packedMove == Move.NONE) {
+            return PASS;
+        }
+        final int cell = Move.rowOf(packedMove) * nCols + Move.columnOf(packedMove);
+        return (short) (Move.orientationOf(packedMove) << CELL_BITS | cell);
+    }
+
+    static int decode(short ply, int nCols) {
+        if (ply == PASS) {
+            return Move.NONE;
+        }
+        final int orientationId = (ply & 0xFFFF) >>> CELL_BITS;
+        final int cell = ply & CELL_MASK;
+        return Move.pack(orientationId, cell / nCols, cell % nCols);
+    }
+}
@@ -0,0 +1,248 @@
+package engine.record;
+
+import engine.GameState;
+import engine.Move;
+import model.board.Board;
+import model.player.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Cursor over a file written by {@link GameRecordWriter}. The file is memory-mapped a window at a time and
+ * records are read in place: stepping through records and reading their moves allocates nothing. Only
+ * replaying a record into {@link GameState}s does.
+ *
+ * <pre>
+ *   while (reader.next()) {
+ *       GameState end = reader.replay();
+ *   }
+ * </pre>
+ */
+public class GameRecordReader implements Closeable {
+    /**
+     * Map this much of the file at a time (mappings are limited to 2GB anyway).
+     */
+    private static final long WINDOW_BYTES = 1L << 28;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /**
+     * File position of the record after the current one.
+     */
+    private long nextRecord = GameRecordFormat.HEADER_BYTES;
+    // Current record, as offsets into the window.
+    private int flags;
+    private int nPlies;
+    private int snapshotOffset;
+    private int movesOffset;
+    private int labelsOffset;
+    private int nSamples;
+    private int nCols;
+
+    private GameRecordReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.map(0);
+        if (this.fileSize < GameRecordFormat.HEADER_BYTES
+                || this.window.getInt(0) != GameRecordFormat.MAGIC
+                || this.window.getShort(4) != GameRecordFormat.VERSION) {
+            throw new IOException("Not a game record file (or unsupported version)");
+        }
+    }
+
+    public static GameRecordReader open(Path path) throws IOException {
+        return new GameRecordReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    private void map(long position) throws IOException {
+        this.windowStart = position;
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(WINDOW_BYTES, this.fileSize - position));
+    }
+
+    /**
+     * Advance to the next record.
+     * @return false if there are no more records
+     */
+    public boolean next() throws IOException {
+        final long position = this.nextRecord;
+        if (position >= this.fileSize) {
+            return false;
+        }
+        // Records are small, so remap whenever the largest possible one might cross the window's end.
+        final long windowEnd = this.windowStart + this.window.capacity();
+        if (windowEnd < this.fileSize && position + GameRecordFormat.MAX_RECORD_BYTES > windowEnd) {
+            this.map(position);
+        }
+
+        int offset = (int) (position - this.windowStart);
+        this.flags = this.window.get(offset);
+        this.nPlies = this.window.getShort(offset + 1) & 0xFFFF;
+        offset += 3;
+        this.nCols = GameState.N_COLS;
+        if (this.hasSnapshot()) {
+            this.snapshotOffset = offset;
+            final int nRows = this.window.get(offset) & 0xFF;
+            this.nCols = this.window.get(offset + 1) & 0xFF;
+            offset += 2 + (nRows * this.nCols + 1) / 2;
+            offset += 1 + this.window.get(offset);
+            offset += 4 * GameRecordFormat.N_RECORDED_PLAYERS + 2 + 2 * GameRecordFormat.N_RECORDED_PLAYERS;
+        }
+        this.movesOffset = offset;
+        offset += 2 * this.nPlies;
+        this.nSamples = 0;
+        if (this.hasLabels()) {
+            this.labelsOffset = offset;
+            offset += 2 * GameRecordFormat.N_RECORDED_PLAYERS;
+            this.nSamples = this.window.getShort(offset) & 0xFFFF;
+            offset += 2 + GameRecordFormat.SAMPLE_BYTES * this.nSamples;
+        }
+        this.nextRecord = this.windowStart + offset;
+        if (this.nextRecord > this.fileSize) {
+            throw new IOException("Truncated game record at " + position);
+        }
+        return true;
+    }
+
+    public boolean hasSnapshot() {
+        return (this.flags & GameRecordFormat.HAS_SNAPSHOT) != 0;
+    }
+
+    public int nPlies() {
+        return this.nPlies;
+    }
+
+    /**
+     * @return true if the current record carries an outcome and samples (see {@link #outcome})
+     */
+    public boolean hasLabels() {
+        return (this.flags & GameRecordFormat.HAS_LABELS) != 0;
+    }
+
+    /**
+     * @return squares PLAYER had covered when the current game ended. Only for labelled records.
+     */
+    public int outcome(Player player) {
+        return this.window.getShort(this.labelsOffset + 2 * player.ordinal()) & 0xFFFF;
+    }
+
+    /**
+     * @return number of sampled positions in the current record (0 if unlabelled)
+     */
+    public int nSamples() {
+        return this.nSamples;
+    }
+
+    /**
+     * @return ply of the K-th sampled position, in increasing order
+     */
+    public int samplePly(int k) {
+        return this.window.getShort(this.sampleOffset(k)) & 0xFFFF;
+    }
+
+    /**
+     * @return the search's score for PLAYER at the K-th sampled position
+     */
+    public double sampleScore(int k, Player player) {
+        return this.window.getFloat(this.sampleOffset(k) + 2 + 4 * player.ordinal());
+    }
+
+    private int sampleOffset(int k) {
+        return this.labelsOffset + 2 * GameRecordFormat.N_RECORDED_PLAYERS + 2 + GameRecordFormat.SAMPLE_BYTES * k;
+    }
+
+    /**
+     * @return the move played at PLY of the current record, packed (see {@link Move#pack}), or Move.NONE
+     *  for a pass
+     */
+    public int move(int ply) {
+        return GameRecordFormat.decode(this.window.getShort(this.movesOffset + 2 * ply), this.nCols);
+    }
+
+    /**
+     * @return the position the current record starts from
+     */
+    public GameState startPosition() {
+        if (!this.hasSnapshot()) {
+            return GameState.newGame();
+        }
+        int offset = this.snapshotOffset;
+        final int nRows = this.window.get(offset) & 0xFF;
+        final int nCols = this.window.get(offset + 1) & 0xFF;
+        offset += 2;
+
+        final Player[] players = Player.values();
+        final Player[][] cells = new Player[nRows][nCols];
+        for (int cell = 0; cell < nRows * nCols; cell++) {
+            final int packed = this.window.get(offset + cell / 2);
+            final int owner = cell % 2 == 0 ? (packed >>> 4) & 0xF : packed & 0xF;
+            cells[cell / nCols][cell % nCols] = players[owner];
+        }
+        offset += (nRows * nCols + 1) / 2;
+
+        final int nNextPlayers = this.window.get(offset++);
+        final List<Player> nextPlayers = new ArrayList<>(nNextPlayers);
+        for (int k = 0; k < nNextPlayers; k++) {
+            nextPlayers.add(players[this.window.get(offset++)]);
+        }
+        final int[] unplayedPieces = new int[players.length];
+        for (int ordinal = 0; ordinal < GameRecordFormat.N_RECORDED_PLAYERS; ordinal++) {
+            unplayedPieces[ordinal] = this.window.getInt(offset);
+            offset += 4;
+        }
+        final int turnNumber = this.window.getShort(offset) & 0xFFFF;
+        offset += 2;
+
+        final int[] startingCells = new int[GameRecordFormat.N_RECORDED_PLAYERS];
+        for (int ordinal = 0; ordinal < startingCells.length; ordinal++) {
+            startingCells[ordinal] = this.window.getShort(offset);
+            offset += 2;
+        }
+        final Board board = Board.fromCells(cells, GameRecordFormat.startingPoints(startingCells, nCols));
+        return GameState.of(board, nextPlayers, unplayedPieces, turnNumber);
+    }
+
+    /**
+     * Replay the current record, handing VISITOR the starting position and then each position after it.
+     */
+    public void replay(Consumer<GameState> visitor) {
+        GameState state = this.startPosition();
+        visitor.accept(state);
+        for (int ply = 0; ply < this.nPlies; ply++) {
+            final int move = this.move(ply);
+            if (move == Move.NONE) {
+                state = state.pass();
+            } else {
+                final int recordedPly = ply;
+                state = state.play(move).orElseThrow(() ->
+                        new IllegalStateException("Illegal move in game record at ply " + recordedPly));
+            }
+            visitor.accept(state);
+        }
+    }
+
+    /**
+     * @return the position at the end of the current record
+     */
+    public GameState replay() {
+        final GameState[] last = new GameState[1];
+        this.replay(state -> last[0] = state);
+        return last[0];
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -0,0 +1,100 @@
+package engine.record;
+
+import engine.GameState;
+import model.player.Player;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams games to a compact binary file (see {@link GameRecordFormat}): two bytes per ply, plus a
+ * snapshot of the starting position for games that don't start from the standard empty board, and
+ * optionally the outcome and sampled evaluations for use as training data.
+ */
+public class GameRecordWriter implements Closeable {
+    private static final long NEW_GAME_HASH = GameState.newGame().getPositionHash();
+
+    private final DataOutputStream out;
+
+    public GameRecordWriter(Path path) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        this.out.writeInt(GameRecordFormat.MAGIC);
+        this.out.writeShort(GameRecordFormat.VERSION);
+    }
+
+    /**
+     * @param start position the game starts from
+     * @param plies every position that followed, in order; each one's last move is what gets recorded
+     */
+    public void writeGame(GameState start, List<GameState> plies) throws IOException {
+        this.writeRecord(start, plies, 0);
+    }
+
+    /**
+     * Record a finished game along with training labels.
+     * @param start position the game starts from
+     * @param plies every position that followed, the last of which ends the game
+     * @param samples positions picked out of the game, with their search evaluations
+     */
+    public void writeLabelledGame(GameState start, List<GameState> plies, List<Sample> samples) throws IOException {
+        if (samples.size() > 0xFFFF) {
+            throw new IllegalArgumentException("Too many samples to record: " + samples.size());
+        }
+        this.writeRecord(start, plies, GameRecordFormat.HAS_LABELS);
+
+        final GameState end = plies.isEmpty() ? start : plies.get(plies.size() - 1);
+        final Map<Player, Integer> outcome = end.getBoard().getNSquaresOccupied();
+        for (int ordinal = 0; ordinal < GameRecordFormat.N_RECORDED_PLAYERS; ordinal++) {
+            this.out.writeShort(outcome.get(Player.values()[ordinal]));
+        }
+        this.out.writeShort(samples.size());
+        for (Sample sample : samples) {
+            this.out.writeShort(sample.getPly());
+            final Map<Player, Double> scores = sample.getEvaluation().getScores();
+            for (int ordinal = 0; ordinal < GameRecordFormat.N_RECORDED_PLAYERS; ordinal++) {
+                this.out.writeFloat(scores.getOrDefault(Player.values()[ordinal], 0.0).floatValue());
+            }
+        }
+    }
+
+    private void writeRecord(GameState start, List<GameState> plies, int flags) throws IOException {
+        if (plies.size() > 0xFFFF) {
+            throw new IllegalArgumentException("Too many plies to record: " + plies.size());
+        }
+        final boolean hasSnapshot = start.getPositionHash() != NEW_GAME_HASH;
+        this.out.writeByte(flags | (hasSnapshot ? GameRecordFormat.HAS_SNAPSHOT : 0));
+        this.out.writeShort(plies.size());
+        if (hasSnapshot) {
+            PositionCodec.write(this.out, start);
+        }
+        final int nCols = start.getBoard().getNCols();
+        for (GameState ply : plies) {
+            this.out.writeShort(GameRecordFormat.encode(ply.getLastMove(), nCols));
+        }
+    }
+
+    /**
+     * Push buffered records out to the file.
+     */
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    /**
+     * Record a single position, with no moves after it.
+     */
+    public void writePosition(GameState position) throws IOException {
+        this.writeGame(position, List.of());
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+}
@@ -0,0 +1,133 @@
+package engine.record;
+
+import engine.GameState;
+import game.PieceRegistry;
+import model.board.Board;
+import model.player.Player;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Compact encoding of a single position, in the snapshot layout of {@link GameRecordFormat}: a 20x20
+ * position takes 233 bytes. Used for game record snapshots and to send positions between processes.
+ * The last move is not kept.
+ */
+public final class PositionCodec {
+    private PositionCodec() {
+    }
+
+    public static void write(DataOutput out, GameState state) throws IOException {
+        final Board board = state.getBoard();
+        out.writeByte(board.getNRows());
+        out.writeByte(board.getNCols());
+        int pending = -1;
+        for (int i = 0; i < board.getNRows(); i++) {
+            for (int j = 0; j < board.getNCols(); j++) {
+                final int owner = board.getSquare(i, j).ordinal();
+                if (pending < 0) {
+                    pending = owner;
+                } else {
+                    out.writeByte(pending << 4 | owner);
+                    pending = -1;
+                }
+            }
+        }
+        if (pending >= 0) {
+            out.writeByte(pending << 4);
+        }
+
+        out.writeByte(state.getNextPlayers().size());
+        for (Player player : state.getNextPlayers()) {
+            out.writeByte(player.ordinal());
+        }
+        for (int ordinal = 0; ordinal < GameRecordFormat.N_RECORDED_PLAYERS; ordinal++) {
+            out.writeInt(state.unplayedPieces(Player.values()[ordinal]));
+        }
+        out.writeShort(state.getTurnNumber());
+        for (int ordinal = 0; ordinal < GameRecordFormat.N_RECORDED_PLAYERS; ordinal++) {
+            out.writeShort(board.startingCell(Player.values()[ordinal]));
+        }
+    }
+
+    /**
+     * @throws IOException if IN runs out or doesn't hold a position
+     */
+    public static GameState read(DataInput in) throws IOException {
+        final int nRows = in.readUnsignedByte();
+        final int nCols = in.readUnsignedByte();
+        if (nRows == 0 || nCols == 0) {
+            throw new IOException("Not a position: " + nRows + "x" + nCols + " board");
+        }
+        final Player[] players = Player.values();
+        final Player[][] cells = new Player[nRows][nCols];
+        int packed = 0;
+        for (int cell = 0; cell < nRows * nCols; cell++) {
+            if (cell % 2 == 0) {
+                packed = in.readUnsignedByte();
+            }
+            final int owner = cell % 2 == 0 ? packed >>> 4 : packed & 0xF;
+            if (owner >= players.length) {
+                throw new IOException("Not a position: square owned by player " + owner);
+            }
+            cells[cell / nCols][cell % nCols] = players[owner];
+        }
+
+        final int nNextPlayers = in.readUnsignedByte();
+        final List<Player> nextPlayers = new ArrayList<>(nNextPlayers);
+        for (int k = 0; k < nNextPlayers; k++) {
+            final int ordinal = in.readUnsignedByte();
+            if (ordinal >= GameRecordFormat.N_RECORDED_PLAYERS || nextPlayers.contains(players[ordinal])) {
+                throw new IOException("Not a position: player " + ordinal + " to move");
+            }
+            nextPlayers.add(players[ordinal]);
+        }
+        final int[] unplayedPieces = new int[players.length];
+        for (int ordinal = 0; ordinal < GameRecordFormat.N_RECORDED_PLAYERS; ordinal++) {
+            unplayedPieces[ordinal] = in.readInt();
+            if ((unplayedPieces[ordinal] & ~PieceRegistry.ALL_PIECES_MASK) != 0) {
+                throw new IOException("Not a position: unplayed pieces "
+                        + Integer.toHexString(unplayedPieces[ordinal]));
+            }
+        }
+        final int turnNumber = in.readUnsignedShort();
+        final int[] startingCells = new int[GameRecordFormat.N_RECORDED_PLAYERS];
+        for (int ordinal = 0; ordinal < startingCells.length; ordinal++) {
+            startingCells[ordinal] = in.readShort();
+            if (startingCells[ordinal] < -1 || startingCells[ordinal] >= nRows * nCols) {
+                throw new IOException("Not a position: starting cell " + startingCells[ordinal]);
+            }
+        }
+        final Board board = Board.fromCells(cells, GameRecordFormat.startingPoints(startingCells, nCols));
+        return GameState.of(board, nextPlayers, unplayedPieces, turnNumber);
+    }
+
+    /**
+     * @return STATE's encoding in base 64, e.g. for a line of text
+     */
+    public static String toBase64(GameState state) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(new DataOutputStream(bytes), state);
+        } catch (IOException e) {
+            throw new AssertionError("In-memory write failed", e);
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * @throws IllegalArgumentException if ENCODED is not base 64
+     * @throws IOException if it is not a position
+     */
+    public static GameState fromBase64(String encoded) throws IOException {
+        return read(new DataInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(encoded))));
+    }
+}
@@ -0,0 +1,16 @@
+package engine.record;
+
+import engine.Evaluation;
+import lombok.Value;
+
+/**
+ * A position picked out of a recorded game for training, with the engine's evaluation of it.
+ */
+@Value
+public class Sample {
+    /**
+     * Number of moves (and passes) into the game; 0 is the starting position.
+     */
+    int ply;
+    Evaluation evaluation;
+}
@@ -0,0 +1,193 @@
+package engine.selfplay;
+
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.GameState;
+import engine.evaluators.MaterialMinusOthersEvaluator;
+import engine.record.GameRecordWriter;
+import engine.record.Sample;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Generates training data by having the engine play itself. Workers each play whole games, each game with its
+ * own engine and seed so no two play out the same. They sample positions along with the engine's evaluation,
+ * and hand finished games over in batches through a bounded queue, so workers block rather than pile up memory
+ * when the disk falls behind. Several writers drain the queue, each into its own shard of labelled game
+ * records (see {@link GameRecordWriter}).
+ */
+@AllArgsConstructor
+public class SelfPlay {
+    /**
+     * Makes a fresh engine for each game from that game's seed, e.g. for its evaluator's noise. Games never
+     * share a transposition table, as results under one seed don't hold under another.
+     */
+    final LongFunction<Engine> engines;
+    /**
+     * Plies each move is searched to.
+     */
+    final int depth;
+    final int nWorkers;
+    /**
+     * Number of output files, each with its own writer thread.
+     */
+    final int nShards;
+    /**
+     * Chance that any given position is kept as a sample.
+     */
+    final double sampleRate;
+    /**
+     * Games per hand-off from a worker to the writers.
+     */
+    final int batchSize;
+    /**
+     * Batches that can wait for a writer before workers block.
+     */
+    final int queueCapacity;
+    /**
+     * Each game's seed comes from this and the game's number, so a run plays the same games however they fall
+     * to the workers.
+     */
+    final long seed;
+
+    /**
+     * A finished game on its way to a writer.
+     */
+    @Value
+    static class PlayedGame {
+        List<GameState> plies;
+        List<Sample> samples;
+    }
+
+    private static final List<PlayedGame> END_OF_GAMES = new ArrayList<>();
+    /**
+     * How often to check on the writers while waiting for the workers.
+     */
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * Play N_GAMES games and write them to shard-NNN.bin files in OUTPUT_DIR.
+     * @return number of positions sampled
+     */
+    public long run(int nGames, Path outputDir) throws Exception {
+        Files.createDirectories(outputDir);
+        final BlockingQueue<List<PlayedGame>> queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        final AtomicInteger gamesLeft = new AtomicInteger(nGames);
+        final AtomicLong nSamples = new AtomicLong();
+        final ExecutorService executor = Executors.newFixedThreadPool(this.nWorkers + this.nShards);
+
+        try {
+            final CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+            for (int shard = 0; shard < this.nShards; shard++) {
+                final Path path = outputDir.resolve(String.format("shard-%03d.bin", shard));
+                completion.submit(() -> write(queue, path));
+            }
+            final Set<Future<Void>> workers = new HashSet<>();
+            for (int worker = 0; worker < this.nWorkers; worker++) {
+                workers.add(completion.submit(() -> this.play(queue, gamesLeft, nSamples)));
+            }
+
+            // Wait on workers and writers alike, so that a writer dying fails the run instead of leaving the
+            // workers blocked on a queue nobody drains.
+            int nWorkersDone = 0;
+            int nDone = 0;
+            int nEndsSent = 0;
+            while (nDone < this.nWorkers + this.nShards) {
+                final Future<Void> done = completion.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (done != null) {
+                    done.get();
+                    nDone++;
+                    if (workers.contains(done)) {
+                        nWorkersDone++;
+                    }
+                }
+                // Writers stop at the first end marker they see, so send one each. Offered rather than put:
+                // if a writer has died there may be no one left to take it.
+                while (nWorkersDone == this.nWorkers && nEndsSent < this.nShards && queue.offer(END_OF_GAMES)) {
+                    nEndsSent++;
+                }
+            }
+        } finally {
+            gamesLeft.set(0);
+            executor.shutdownNow();
+        }
+        return nSamples.get();
+    }
+
+    private Void play(BlockingQueue<List<PlayedGame>> queue, AtomicInteger gamesLeft, AtomicLong nSamples)
+            throws Exception {
+        List<PlayedGame> batch = new ArrayList<>(this.batchSize);
+        for (int gameNumber = gamesLeft.getAndDecrement(); gameNumber > 0; gameNumber = gamesLeft.getAndDecrement()) {
+            final PlayedGame game = this.playGame(new SplittableRandom(this.seed + gameNumber));
+            nSamples.addAndGet(game.getSamples().size());
+            batch.add(game);
+            if (batch.size() >= this.batchSize) {
+                queue.put(batch);
+                batch = new ArrayList<>(this.batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            queue.put(batch);
+        }
+        return null;
+    }
+
+    private PlayedGame playGame(SplittableRandom random) throws Exception {
+        final Engine engine = this.engines.apply(random.nextLong());
+        final List<GameState> plies = new ArrayList<>();
+        final List<Sample> samples = new ArrayList<>();
+        GameState state = GameState.newGame();
+        while (!state.isOver()) {
+            final EvaluatedGameState evaluated = engine.evaluate(state, this.depth, false);
+            if (random.nextDouble() < this.sampleRate) {
+                samples.add(new Sample(plies.size(), evaluated.getEvaluation()));
+            }
+            state = evaluated.getBestMove();
+            plies.add(state);
+        }
+        return new PlayedGame(plies, samples);
+    }
+
+    private static Void write(BlockingQueue<List<PlayedGame>> queue, Path path) throws Exception {
+        try (GameRecordWriter writer = new GameRecordWriter(path)) {
+            for (List<PlayedGame> batch = queue.take(); batch != END_OF_GAMES; batch = queue.take()) {
+                for (PlayedGame game : batch) {
+                    writer.writeLabelledGame(GameState.newGame(), game.getPlies(), game.getSamples());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Usage: SelfPlay OUTPUT_DIR N_GAMES [DEPTH] [SAMPLE_RATE] [SEED]
+     */
+    public static void main(String[] args) throws Exception {
+        final Path outputDir = Paths.get(args[0]);
+        final int nGames = Integer.parseInt(args[1]);
+        final int depth = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        final double sampleRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.25;
+        final long seed = args.length > 4 ? Long.parseLong(args[4]) : MaterialMinusOthersEvaluator.DEFAULT_SEED;
+        final int nCores = Runtime.getRuntime().availableProcessors();
+
+        final SelfPlay selfPlay = new SelfPlay(
+                gameSeed -> Engine.withMemoryBudget(new MaterialMinusOthersEvaluator(gameSeed), 4,
+                        Runtime.getRuntime().maxMemory() / (4 * nCores)),
+                depth, nCores, Math.max(1, nCores / 8), sampleRate, 16, 2 * nCores, seed);
+        final long nSamples = selfPlay.run(nGames, outputDir);
+        System.out.println("Sampled " + nSamples + " positions from " + nGames + " games");
+    }
+}
@@ -0,0 +1,292 @@
+package engine.server;
+
+import engine.BoardEvaluator;
+import engine.AnytimeSearch;
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.GameState;
+import engine.evaluators.CachingEvaluator;
+import engine.evaluators.MaterialMinusOthersEvaluator;
+import engine.record.PositionCodec;
+import lombok.Value;
+import model.player.Player;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived analysis service on the loopback interface, so that short queries don't pay for a JVM start and
+ * a cold transposition table each time. Every client shares one engine.
+ *
+ * Line protocol, one reply line per request line:
+ * <pre>
+ *   analyze DEPTH DEADLINE_MILLIS POSITION   ->  ok MOVE SCORE_A SCORE_B SCORE_C SCORE_D
+ *                                                | timeout | busy | error MESSAGE
+ *   quit
+ * </pre>
+ * DEPTH is 1 to {@link #MAX_DEPTH}. POSITION is {@link PositionCodec#toBase64}'s encoding. MOVE is the best
+ * move packed as in {@link engine.Move#pack}, -1 for a pass. Scores are NaN for players the evaluation leaves
+ * out.
+ *
+ * Requests for a position that is already queued or being searched (at the same depth) wait on that search
+ * instead of starting another. Searches queue up for a fixed pool of workers, each taking one at a time. A
+ * search is stopped (see {@link AnytimeSearch}) as soon as nobody is waiting for it any more, whether or not a
+ * worker has got to it yet, so the worker moves on. A full queue turns requests away.
+ */
+public class AnalysisServer implements Closeable {
+    /**
+     * Deepest search a client can ask for.
+     */
+    public static final int MAX_DEPTH = 8;
+
+    private final Engine engine;
+    private final ServerSocket serverSocket;
+    private final int nWorkers;
+    private final BlockingQueue<Job> queue;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "analysis-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<Key, Job> inFlight = new ConcurrentHashMap<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * The position itself rather than its hash, so that a collision never sends anyone another position's
+     * move.
+     */
+    @Value
+    private static class Key {
+        GameState position;
+        int depth;
+    }
+
+    /**
+     * A search, and everyone waiting on it.
+     */
+    private static class Job {
+        final Key key;
+        final CompletableFuture<EvaluatedGameState> result = new CompletableFuture<>();
+        /**
+         * System.nanoTime() after which nobody wants the result: the latest of the waiters' deadlines.
+         */
+        final AtomicLong deadline;
+
+        Job(Key key, long deadline) {
+            this.key = key;
+            this.deadline = new AtomicLong(deadline);
+        }
+    }
+
+    /**
+     * Listen on PORT (0 for any free one). Call {@link #start()} to begin serving.
+     * @param queueCapacity searches that can wait for a worker before requests are turned away
+     */
+    public AnalysisServer(Engine engine, int port, int nWorkers, int queueCapacity) throws IOException {
+        this.engine = engine;
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.nWorkers = nWorkers;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    public AnalysisServer start() {
+        for (int i = 0; i < this.nWorkers; i++) {
+            this.startThread(this::work, "analysis-worker-" + i);
+        }
+        this.startThread(this::acceptConnections, "analysis-server-" + this.getPort());
+        return this;
+    }
+
+    private void startThread(Runnable runnable, String name) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        this.threads.add(thread);
+    }
+
+    /**
+     * Search POSITION, or join the search of it that is already under way.
+     * @param depth 1 or more
+     * @param deadline System.nanoTime() after which the result is no use
+     * @return the result; fails with RejectedExecutionException if the queue is full, or TimeoutException if
+     *  the search was stopped because its deadline passed
+     */
+    public CompletableFuture<EvaluatedGameState> submit(GameState position, int depth, long deadline) {
+        final Key key = new Key(position, depth);
+        final Job[] created = new Job[1];
+        final Job job = this.inFlight.compute(key, (k, existing) -> {
+            if (existing == null) {
+                created[0] = new Job(k, deadline);
+                return created[0];
+            }
+            existing.deadline.accumulateAndGet(deadline, Math::max);
+            return existing;
+        });
+        if (created[0] != null && !this.queue.offer(job)) {
+            this.inFlight.remove(key, job);
+            job.result.completeExceptionally(new RejectedExecutionException("Analysis queue is full"));
+        }
+        return job.result;
+    }
+
+    private void work() {
+        while (!this.closed) {
+            final Job job;
+            try {
+                job = this.queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            // Run on this thread, once the timer knows about it.
+            final Runnable[] run = new Runnable[1];
+            final AnytimeSearch search = this.engine.searchAsync(job.key.getPosition(), job.key.getDepth(), false,
+                    runnable -> run[0] = runnable, result -> { });
+            this.stopAtDeadline(job, search);
+            run[0].run();
+            search.whenComplete((result, e) -> {
+                if (e == null) {
+                    job.result.complete(result);
+                } else {
+                    job.result.completeExceptionally(e);
+                }
+            });
+            // Later requests for the same position will find it in the transposition table.
+            this.inFlight.remove(job.key, job);
+        }
+    }
+
+    /**
+     * Stop SEARCH once JOB's deadline has passed, checking again then in case someone has since put it off.
+     */
+    private void stopAtDeadline(Job job, AnytimeSearch search) {
+        if (search.isDone()) {
+            return;
+        }
+        final long remaining = job.deadline.get() - System.nanoTime();
+        if (remaining > 0) {
+            this.timer.schedule(() -> this.stopAtDeadline(job, search), remaining, TimeUnit.NANOSECONDS);
+        } else {
+            // Timed out first, so that a shallower result the search stops with isn't passed off as the answer.
+            job.result.completeExceptionally(new TimeoutException("Deadline passed"));
+            search.stop();
+        }
+    }
+
+    private void acceptConnections() {
+        while (!this.closed) {
+            try {
+                final Socket socket = this.serverSocket.accept();
+                final Thread handler = new Thread(() -> this.serve(socket), "analysis-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (SocketException e) {
+                // Closed.
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            final BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            final PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII);
+            for (String line = in.readLine(); line != null && !line.trim().equals("quit"); line = in.readLine()) {
+                out.println(this.handle(line.trim()));
+            }
+        } catch (IOException e) {
+            // Client went away.
+        }
+    }
+
+    /**
+     * @return the reply to one request line
+     */
+    String handle(String request) {
+        final String[] fields = request.split("\\s+");
+        if (fields.length != 4 || !fields[0].equals("analyze")) {
+            return "error expected: analyze DEPTH DEADLINE_MILLIS POSITION";
+        }
+        final int depth;
+        final long deadlineMillis;
+        final GameState position;
+        try {
+            depth = Integer.parseInt(fields[1]);
+            deadlineMillis = Long.parseLong(fields[2]);
+            position = PositionCodec.fromBase64(fields[3]);
+        } catch (RuntimeException | IOException e) {
+            // Anything that can't be decoded gets a reply, rather than taking the connection down with it.
+            return "error " + e;
+        }
+        if (depth < 1 || depth > MAX_DEPTH) {
+            return "error depth must be 1 to " + MAX_DEPTH;
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        final EvaluatedGameState result;
+        try {
+            result = this.submit(position, depth, deadline).get(deadlineMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return "timeout";
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                return "timeout";
+            }
+            if (e.getCause() instanceof RejectedExecutionException) {
+                return "busy";
+            }
+            return "error " + e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "error interrupted";
+        }
+
+        final StringBuilder reply = new StringBuilder("ok ").append(result.getBestMove().getLastMove());
+        for (Player player : GameState.STARTING_ORDER) {
+            reply.append(' ').append(result.getEvaluation().getScores().getOrDefault(player, Double.NaN));
+        }
+        return reply.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.serverSocket.close();
+        this.threads.forEach(Thread::interrupt);
+        this.timer.shutdownNow();
+    }
+
+    /**
+     * Usage: AnalysisServer PORT [N_WORKERS] [CACHE_MEGABYTES] [SEED]
+     */
+    public static void main(String[] args) throws Exception {
+        final int port = Integer.parseInt(args[0]);
+        final int nWorkers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        final long cacheBytes = args.length > 2 ? Long.parseLong(args[2]) << 20 : Runtime.getRuntime().maxMemory() / 2;
+        final long seed = args.length > 3 ? Long.parseLong(args[3]) : MaterialMinusOthersEvaluator.DEFAULT_SEED;
+        final BoardEvaluator evaluator = new CachingEvaluator(new MaterialMinusOthersEvaluator(seed), 20);
+        final Engine engine = Engine.withMemoryBudget(evaluator, 8, cacheBytes);
+        final AnalysisServer server = new AnalysisServer(engine, port, nWorkers, 16 * nWorkers).start();
+        System.out.println("Listening on port " + server.getPort());
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,237 @@
+package engine.tuning;
+
+import engine.BoardEvaluator;
+import engine.Evaluation;
+import engine.GameState;
+import engine.evaluators.WeightedEvaluator;
+import engine.record.GameRecordReader;
+import lombok.AllArgsConstructor;
+import model.player.Player;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Fits evaluator weights to played games, Texel style: nudge each weight up and down by a step, keep
+ * whichever way predicts the games' final square counts better, and shrink the step once neither does.
+ *
+ * Each pass streams the sampled positions out of labelled game records (see
+ * {@link engine.selfplay.SelfPlay}) and scores every candidate set of weights on them, so positions are
+ * read once per pass however many weights there are, and never all held in memory at once. Batches of
+ * positions are scored on a thread pool while the next batch is read.
+ */
+@AllArgsConstructor
+public class WeightTuner {
+    private static final Player[] PLAYERS = GameState.STARTING_ORDER.toArray(new Player[0]);
+
+    /**
+     * Builds the evaluator to score with a given set of weights. Evaluators are shared between threads.
+     */
+    final Function<double[], BoardEvaluator> evaluators;
+    final int nThreads;
+    /**
+     * Positions per task handed to the thread pool.
+     */
+    final int batchSize;
+    final double initialStep;
+    /**
+     * Stop once every step has shrunk below this.
+     */
+    final double minStep;
+    final int maxPasses;
+
+    /**
+     * Sampled positions and how the games they came from ended, on their way to a scoring thread.
+     */
+    private static class Batch {
+        final List<GameState> positions = new ArrayList<>();
+        final List<int[]> outcomes = new ArrayList<>();
+    }
+
+    /**
+     * @return the best weights found, starting from INITIAL_WEIGHTS
+     */
+    public double[] tune(List<Path> files, double[] initialWeights) throws Exception {
+        final int nWeights = initialWeights.length;
+        final double[] steps = new double[nWeights];
+        Arrays.fill(steps, this.initialStep);
+
+        double[] weights = initialWeights.clone();
+        double[] bestWeights = weights;
+        double bestError = Double.POSITIVE_INFINITY;
+        boolean[] moved = new boolean[nWeights];
+        for (int pass = 0; pass < this.maxPasses && Arrays.stream(steps).max().getAsDouble() >= this.minStep; pass++) {
+            // The current weights, then each weight nudged up and down.
+            final List<double[]> candidates = new ArrayList<>();
+            candidates.add(weights);
+            for (int k = 0; k < nWeights; k++) {
+                for (double sign : new double[]{1, -1}) {
+                    final double[] candidate = weights.clone();
+                    candidate[k] += sign * steps[k];
+                    candidates.add(candidate);
+                }
+            }
+            final double[] errors = this.meanSquaredErrors(files, candidates);
+
+            if (anyMoved(moved) && errors[0] >= bestError) {
+                // Every move helped alone, but not all together. Back up and take smaller steps.
+                for (int k = 0; k < nWeights; k++) {
+                    if (moved[k]) {
+                        steps[k] /= 2;
+                    }
+                }
+                weights = bestWeights;
+                moved = new boolean[nWeights];
+                continue;
+            }
+            bestWeights = weights;
+            bestError = errors[0];
+
+            final double[] next = weights.clone();
+            for (int k = 0; k < nWeights; k++) {
+                final double up = errors[1 + 2 * k];
+                final double down = errors[2 + 2 * k];
+                moved[k] = Math.min(up, down) < bestError;
+                if (moved[k]) {
+                    next[k] += up < down ? steps[k] : -steps[k];
+                } else {
+                    steps[k] /= 2;
+                }
+            }
+            weights = next;
+        }
+        return bestWeights;
+    }
+
+    private static boolean anyMoved(boolean[] moved) {
+        for (boolean weightMoved : moved) {
+            if (weightMoved) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Score each set of weights on every sampled position in FILES.
+     * @return mean over positions and players of (score - final square count)^2, by candidate
+     */
+    public double[] meanSquaredErrors(List<Path> files, List<double[]> candidates) throws Exception {
+        final List<BoardEvaluator> candidateEvaluators = new ArrayList<>();
+        for (double[] candidate : candidates) {
+            candidateEvaluators.add(this.evaluators.apply(candidate));
+        }
+        final double[] sums = new double[candidates.size()];
+        final long[] nTerms = new long[1];
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // Bounds the batches in memory: the reader waits for a permit before reading more.
+        final int maxBatchesInFlight = 2 * this.nThreads;
+        final Semaphore inFlight = new Semaphore(maxBatchesInFlight);
+        final ExecutorService executor = Executors.newFixedThreadPool(this.nThreads);
+        try {
+            Batch batch = new Batch();
+            for (Path file : files) {
+                try (GameRecordReader reader = GameRecordReader.open(file)) {
+                    while (reader.next() && failure.get() == null) {
+                        if (!reader.hasLabels() || reader.nSamples() == 0) {
+                            continue;
+                        }
+                        final int[] outcome = new int[PLAYERS.length];
+                        for (int p = 0; p < PLAYERS.length; p++) {
+                            outcome[p] = reader.outcome(PLAYERS[p]);
+                        }
+                        final Batch current = batch;
+                        final int[] ply = {0};
+                        final int[] sample = {0};
+                        reader.replay(state -> {
+                            if (sample[0] < reader.nSamples() && reader.samplePly(sample[0]) == ply[0]) {
+                                current.positions.add(state);
+                                current.outcomes.add(outcome);
+                                sample[0]++;
+                            }
+                            ply[0]++;
+                        });
+                        if (batch.positions.size() >= this.batchSize) {
+                            this.submit(executor, inFlight, batch, candidateEvaluators, sums, nTerms, failure);
+                            batch = new Batch();
+                        }
+                    }
+                }
+            }
+            if (!batch.positions.isEmpty()) {
+                this.submit(executor, inFlight, batch, candidateEvaluators, sums, nTerms, failure);
+            }
+            // Every permit back means every batch has been scored.
+            inFlight.acquire(maxBatchesInFlight);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("Failed to score positions", failure.get());
+        }
+        if (nTerms[0] == 0) {
+            throw new IllegalArgumentException("No labelled positions in " + files);
+        }
+        for (int c = 0; c < sums.length; c++) {
+            sums[c] /= nTerms[0];
+        }
+        return sums;
+    }
+
+    private void submit(ExecutorService executor, Semaphore inFlight, Batch batch,
+                        List<BoardEvaluator> candidateEvaluators, double[] sums, long[] nTerms,
+                        AtomicReference<Throwable> failure) throws InterruptedException {
+        inFlight.acquire();
+        executor.execute(() -> {
+            try {
+                final double[] batchSums = new double[candidateEvaluators.size()];
+                for (int i = 0; i < batch.positions.size(); i++) {
+                    final int[] outcome = batch.outcomes.get(i);
+                    for (int c = 0; c < batchSums.length; c++) {
+                        final Evaluation evaluation = candidateEvaluators.get(c).evaluate(batch.positions.get(i));
+                        for (int p = 0; p < PLAYERS.length; p++) {
+                            final double error = evaluation.getScores().get(PLAYERS[p]) - outcome[p];
+                            batchSums[c] += error * error;
+                        }
+                    }
+                }
+                synchronized (sums) {
+                    for (int c = 0; c < batchSums.length; c++) {
+                        sums[c] += batchSums[c];
+                    }
+                    nTerms[0] += (long) batch.positions.size() * PLAYERS.length;
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Usage: WeightTuner WEIGHTS_OUT RECORD_FILE...
+     *
+     * Fits {@link WeightedEvaluator}'s weights, starting from material only.
+     */
+    public static void main(String[] args) throws Exception {
+        final List<Path> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            files.add(Paths.get(args[i]));
+        }
+        final WeightTuner tuner = new WeightTuner(WeightedEvaluator::new,
+                Runtime.getRuntime().availableProcessors(), 256, 0.5, 0.01, 100);
+        final double[] weights = tuner.tune(files, WeightedEvaluator.MATERIAL_WEIGHTS);
+        new WeightedEvaluator(weights).save(Paths.get(args[0]));
+        System.out.println("Weights: " + Arrays.toString(weights));
+    }
+}
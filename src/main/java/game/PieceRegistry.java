@@ -0,0 +1,134 @@
+package game;
+
+import model.piece.Piece;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stable small-int IDs for the standard pieces and each of their orientations, so that the engine can
+ * track pieces as bits and ints instead of hashing boolean arrays.
+ *
+ * Piece IDs are indices into {@link StandardPieces#ALL_PIECES}, so a set of pieces fits in an int mask.
+ * Orientation IDs number every distinct rotation/reflection of every piece, grouped by piece.
+ */
+public class PieceRegistry {
+    public static final int N_PIECES = StandardPieces.ALL_PIECES.size();
+    /**
+     * Mask with every piece's bit set.
+     */
+    public static final int ALL_PIECES_MASK = (1 << N_PIECES) - 1;
+
+    /**
+     * Orientation IDs of each piece, by piece ID.
+     */
+    private static final int[][] ORIENTATIONS = new int[N_PIECES][];
+    private static final Piece[] ORIENTED_PIECES;
+    private static final int[] PIECE_OF_ORIENTATION;
+    private static final int[] TRANSPOSED_ORIENTATION;
+
+    static {
+        final List<Piece> orientedPieces = new ArrayList<>();
+        final List<Integer> pieceOfOrientation = new ArrayList<>();
+        for (int pieceId = 0; pieceId < N_PIECES; pieceId++) {
+            final List<Piece> orbit = new ArrayList<>(StandardPieces.ALL_PIECES.get(pieceId).getDihedralOrbit());
+            ORIENTATIONS[pieceId] = new int[orbit.size()];
+            for (int k = 0; k < orbit.size(); k++) {
+                ORIENTATIONS[pieceId][k] = orientedPieces.size();
+                orientedPieces.add(orbit.get(k));
+                pieceOfOrientation.add(pieceId);
+            }
+        }
+        ORIENTED_PIECES = orientedPieces.toArray(new Piece[0]);
+        PIECE_OF_ORIENTATION = pieceOfOrientation.stream().mapToInt(Integer::intValue).toArray();
+
+        TRANSPOSED_ORIENTATION = new int[ORIENTED_PIECES.length];
+        for (int orientationId = 0; orientationId < ORIENTED_PIECES.length; orientationId++) {
+            final Piece transposed = ORIENTED_PIECES[orientationId].transpose();
+            for (int other : ORIENTATIONS[PIECE_OF_ORIENTATION[orientationId]]) {
+                if (ORIENTED_PIECES[other].equals(transposed)) {
+                    TRANSPOSED_ORIENTATION[orientationId] = other;
+                }
+            }
+        }
+    }
+
+    public static final int N_ORIENTATIONS = ORIENTED_PIECES.length;
+
+    private PieceRegistry() {
+    }
+
+    /**
+     * @return the piece in its standard orientation
+     */
+    public static Piece piece(int pieceId) {
+        return StandardPieces.ALL_PIECES.get(pieceId);
+    }
+
+    /**
+     * @return ID of this standard piece (in any orientation), or -1 if it is not one
+     */
+    public static int pieceId(Piece piece) {
+        for (int orientationId = 0; orientationId < N_ORIENTATIONS; orientationId++) {
+            if (ORIENTED_PIECES[orientationId] == piece) {
+                return PIECE_OF_ORIENTATION[orientationId];
+            }
+        }
+        for (int orientationId = 0; orientationId < N_ORIENTATIONS; orientationId++) {
+            if (ORIENTED_PIECES[orientationId].equals(piece)) {
+                return PIECE_OF_ORIENTATION[orientationId];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return orientation IDs of this piece. Do not modify.
+     */
+    public static int[] orientations(int pieceId) {
+        return ORIENTATIONS[pieceId];
+    }
+
+    public static Piece orientedPiece(int orientationId) {
+        return ORIENTED_PIECES[orientationId];
+    }
+
+    public static int pieceOf(int orientationId) {
+        return PIECE_OF_ORIENTATION[orientationId];
+    }
+
+    /**
+     * @return the orientation this one becomes when reflected across the main diagonal
+     */
+    public static int transposedOrientation(int orientationId) {
+        return TRANSPOSED_ORIENTATION[orientationId];
+    }
+
+    /**
+     * @return ID of the orientation with exactly this shape, or -1 if it is not a standard piece
+     */
+    public static int orientationId(Piece piece) {
+        for (int orientationId = 0; orientationId < N_ORIENTATIONS; orientationId++) {
+            if (ORIENTED_PIECES[orientationId].equals(piece)) {
+                return orientationId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return mask with exactly these pieces' bits set
+     * @throws IllegalArgumentException if one of them is not a standard piece
+     */
+    public static int maskOf(Piece... pieces) {
+        int mask = 0;
+        for (Piece piece : pieces) {
+            final int pieceId = pieceId(piece);
+            if (pieceId < 0) {
+                throw new IllegalArgumentException("Not a standard piece:\n" + piece.toArt());
+            }
+            mask |= 1 << pieceId;
+        }
+        return mask;
+    }
+}
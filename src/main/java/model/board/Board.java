@@ -15,19 +15,136 @@ import java.util.stream.Collectors;
  */
 @AllArgsConstructor
 public class Board {
+    @Getter
     final int nRows;
+    @Getter
     final int nCols;
     final Player[][] board;
     final Map<Player, int[]> playerToStartingCorner;
     @Getter
     final Map<Player, Integer> nSquaresOccupied;
+    /**
+     * Zobrist hash of the occupied squares, maintained incrementally as pieces are placed.
+     */
+    @Getter
+    final long zobristHash;
+    /**
+     * Zobrist hash this board would have after {@link #transposed()}, maintained alongside zobristHash if
+     * tracksTransposes, 0 otherwise.
+     */
+    @Getter
+    final long transposedZobristHash;
+    /**
+     * Who each player (by ordinal) becomes when the board is transposed: the player whose starting corner
+     * is the mirror image of theirs. Transposing only maps starting corners onto each other on a square
+     * board, so on other boards this is the identity and the symmetry is not used.
+     */
+    final Player[] transposedPlayers;
+    /**
+     * Whether to keep transposedZobristHash, see {@link #trackingTransposes()}.
+     */
+    @Getter
+    final boolean tracksTransposes;
 
     public Board(int nRows, int nCols) {
+        this(nRows, nCols, null);
+    }
+
+    /**
+     * Empty board where each player's first piece has to cover their starting point instead of a corner,
+     * e.g. the two-player 14x14 variant. Players without a starting point can never move.
+     * @param startingPoints {row, column} of each player's starting point, or null for the four corners
+     */
+    public Board(int nRows, int nCols, Map<Player, int[]> startingPoints) {
         this.nRows = nRows;
         this.nCols = nCols;
         this.board = this.emptyBoard();
-        this.playerToStartingCorner = this.startingCorners();
+        this.playerToStartingCorner = startingPoints == null ? this.startingCorners() : startingPoints;
         this.nSquaresOccupied = this.initialCounts();
+        this.zobristHash = 0L;
+        this.transposedZobristHash = 0L;
+        this.transposedPlayers = this.transposedPlayers();
+        this.tracksTransposes = false;
+    }
+
+    /**
+     * This board, keeping the hash of its transpose up to date from now on. Off by default, since it only
+     * pays off when a position can meet its transpose, and transposing reverses the turn order: with more
+     * than two players that turn order never comes up in play.
+     */
+    public Board trackingTransposes() {
+        if (this.tracksTransposes) {
+            return this;
+        }
+        long transposedZobristHash = 0L;
+        for (int r = 0; r < this.nRows; r++) {
+            for (int c = 0; c < this.nCols; c++) {
+                if (this.board[r][c] != Player.NO_PLAYER) {
+                    transposedZobristHash ^= Zobrist.squareKey(this.transposedCell(r, c),
+                            this.transposedPlayer(this.board[r][c]));
+                }
+            }
+        }
+        return new Board(nRows, nCols, board, playerToStartingCorner, nSquaresOccupied,
+                zobristHash, transposedZobristHash, transposedPlayers, true);
+    }
+
+    private Player[] transposedPlayers() {
+        final Player[] transposedPlayers = Player.values();
+        if (this.nRows != this.nCols) {
+            return transposedPlayers;
+        }
+        for (Map.Entry<Player, int[]> entry : this.playerToStartingCorner.entrySet()) {
+            final int[] corner = entry.getValue();
+            for (Map.Entry<Player, int[]> other : this.playerToStartingCorner.entrySet()) {
+                if (other.getValue()[0] == corner[1] && other.getValue()[1] == corner[0]) {
+                    transposedPlayers[entry.getKey().ordinal()] = other.getKey();
+                }
+            }
+        }
+        return transposedPlayers;
+    }
+
+    /**
+     * @return row-major index of the cell PLAYER's first piece has to cover, or -1 if they have none
+     */
+    public int startingCell(Player player) {
+        final int[] corner = this.playerToStartingCorner.get(player);
+        return corner == null ? -1 : corner[0] * this.nCols + corner[1];
+    }
+
+    /**
+     * @return who PLAYER becomes when the board is transposed
+     */
+    public Player transposedPlayer(Player player) {
+        return this.transposedPlayers[player.ordinal()];
+    }
+
+    /**
+     * @return row-major index of the cell that (r, c) maps to when the board is transposed
+     */
+    private int transposedCell(int r, int c) {
+        return this.nRows == this.nCols ? c * this.nCols + r : r * this.nCols + c;
+    }
+
+    /**
+     * Board with these squares filled in, e.g. a position read back from disk.
+     * @param cells owner of each square, NO_PLAYER if empty
+     * @param startingPoints see {@link #Board(int, int, Map)}
+     */
+    public static Board fromCells(Player[][] cells, Map<Player, int[]> startingPoints) {
+        final Board empty = new Board(cells.length, cells[0].length, startingPoints);
+        final Board filled = new Board(empty.nRows, empty.nCols, cells, empty.playerToStartingCorner,
+                empty.nSquaresOccupied, empty.zobristHash, empty.transposedZobristHash, empty.transposedPlayers,
+                false);
+        return empty.overlay(filled);
+    }
+
+    /**
+     * @return owner of the square at row I, column J (NO_PLAYER if empty)
+     */
+    public Player getSquare(int i, int j) {
+        return this.board[i][j];
     }
 
     private Map<Player, Integer> initialCounts() {
@@ -231,16 +348,25 @@ public class Board {
         return Optional.of(this.boardAfterMove(i, j, piece, player));
     }
 
-    Board boardAfterMove(int i, int j, Piece piece, Player player) {
+    /**
+     * Place PIECE without checking that it is legal, e.g. at an anchor from {@link PlacementMasks}.
+     */
+    public Board boardAfterMove(int i, int j, Piece piece, Player player) {
         // New array
         final Player[][] newBoard = new Player[this.nRows][this.nCols];
         for (int r = 0; r < this.nRows; r++) {
             newBoard[r] = Arrays.copyOf(this.board[r], this.nCols);
         }
+        long zobristHash = this.zobristHash;
+        long transposedZobristHash = this.transposedZobristHash;
         for (int k = 0; k < piece.nSquares; k++) {
             final int r = i + piece.rowLocations.get(k);
             final int c = j + piece.colLocations.get(k);
             newBoard[r][c] = player;
+            zobristHash ^= Zobrist.squareKey(r * this.nCols + c, player);
+            if (this.tracksTransposes) {
+                transposedZobristHash ^= Zobrist.squareKey(this.transposedCell(r, c), this.transposedPlayer(player));
+            }
         }
 
         // New counts
@@ -250,11 +376,44 @@ public class Board {
         nSquaresOccupied.put(player, this.nSquaresOccupied.get(player) + nSquares);
         nSquaresOccupied.put(Player.NO_PLAYER, this.nSquaresOccupied.get(Player.NO_PLAYER) - nSquares);
 
-        return new Board(nRows, nCols, newBoard, playerToStartingCorner, nSquaresOccupied);
+        return new Board(nRows, nCols, newBoard, playerToStartingCorner, nSquaresOccupied,
+                zobristHash, transposedZobristHash, transposedPlayers, tracksTransposes);
+    }
+
+    /**
+     * Mirror the board across its main diagonal and relabel the players to match, e.g. A's corner (0, 0)
+     * stays put while B and D swap corners. The result is a position with the same value to the relabelled
+     * players.
+     * @return the transposed board, or this board if it is not square
+     */
+    public Board transposed() {
+        if (this.nRows != this.nCols) {
+            return this;
+        }
+        final Player[][] newBoard = new Player[this.nCols][this.nRows];
+        // Worked out again, since without tracksTransposes there is no kept hash to swap in.
+        long zobristHash = 0L;
+        for (int r = 0; r < this.nRows; r++) {
+            for (int c = 0; c < this.nCols; c++) {
+                newBoard[c][r] = this.transposedPlayer(this.board[r][c]);
+                if (newBoard[c][r] != Player.NO_PLAYER) {
+                    zobristHash ^= Zobrist.squareKey(this.transposedCell(r, c), newBoard[c][r]);
+                }
+            }
+        }
+        final Map<Player, Integer> nSquaresOccupied = new EnumMap<>(Player.class);
+        for (Map.Entry<Player, Integer> entry : this.nSquaresOccupied.entrySet()) {
+            nSquaresOccupied.put(this.transposedPlayer(entry.getKey()), entry.getValue());
+        }
+        return new Board(nCols, nRows, newBoard, playerToStartingCorner, nSquaresOccupied,
+                zobristHash, this.tracksTransposes ? this.zobristHash : 0L, transposedPlayers, tracksTransposes);
     }
 
     boolean startsInCorner(int i, int j, Piece piece, Player player) {
         final int [] startingCorner = this.playerToStartingCorner.get(player);
+        if (startingCorner == null) {
+            return false;
+        }
 
         for (int k = 0; k < piece.nSquares; k++) {
             final int r = i + piece.rowLocations.get(k);
@@ -268,6 +427,150 @@ public class Board {
         return false;
     }
 
+    /**
+     * Cells that PLAYER could conceivably still fill: empty cells not beside one of their own pieces,
+     * 8-connected to a cell where their next piece could start (a free diagonal of one of their pieces,
+     * or their starting corner on the first move). This over-approximates, but it never misses a cell
+     * the player could reach, so players whose sets are disjoint can no longer interact.
+     * @return row-major set of cell indices
+     */
+    public BitSet reachableCells(Player player) {
+        final BitSet reachable = new BitSet(this.nRows * this.nCols);
+        final Deque<Integer> toVisit = new ArrayDeque<>();
+
+        if (this.isFirstMove(player)) {
+            final int[] corner = this.playerToStartingCorner.get(player);
+            if (corner != null && this.board[corner[0]][corner[1]] == Player.NO_PLAYER) {
+                reachable.set(corner[0] * this.nCols + corner[1]);
+                toVisit.push(corner[0] * this.nCols + corner[1]);
+            }
+        } else {
+            for (int r = 0; r < this.nRows; r++) {
+                for (int c = 0; c < this.nCols; c++) {
+                    if (this.isOpenFor(r, c, player) && this.hasDiagonalNeighbor(r, c, player)) {
+                        reachable.set(r * this.nCols + c);
+                        toVisit.push(r * this.nCols + c);
+                    }
+                }
+            }
+        }
+
+        // Flood fill with 8-connectivity, since new corners open up diagonally from placed pieces.
+        while (!toVisit.isEmpty()) {
+            final int cell = toVisit.pop();
+            final int r = cell / this.nCols;
+            final int c = cell % this.nCols;
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    final int nr = r + dr;
+                    final int nc = c + dc;
+                    if (nr < 0 || nr >= this.nRows || nc < 0 || nc >= this.nCols) {
+                        continue;
+                    }
+                    final int neighbor = nr * this.nCols + nc;
+                    if (!reachable.get(neighbor) && this.isOpenFor(nr, nc, player)) {
+                        reachable.set(neighbor);
+                        toVisit.push(neighbor);
+                    }
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * @return where PLAYER may place pieces, for generating all of a piece's moves at once
+     */
+    public PlacementMasks placementMasks(Player player) {
+        final long[] open = new long[PlacementMasks.nWords(this.nRows * this.nCols)];
+        final long[] corners = new long[open.length];
+        final boolean firstMove = this.isFirstMove(player);
+        for (int r = 0; r < this.nRows; r++) {
+            for (int c = 0; c < this.nCols; c++) {
+                if (!this.isOpenFor(r, c, player)) {
+                    continue;
+                }
+                PlacementMasks.set(open, r * this.nCols + c);
+                if (!firstMove && this.hasDiagonalNeighbor(r, c, player)) {
+                    PlacementMasks.set(corners, r * this.nCols + c);
+                }
+            }
+        }
+        if (firstMove) {
+            final int[] corner = this.playerToStartingCorner.get(player);
+            if (corner != null && this.board[corner[0]][corner[1]] == Player.NO_PLAYER) {
+                PlacementMasks.set(corners, corner[0] * this.nCols + corner[1]);
+            }
+        }
+        return new PlacementMasks(this.nRows, this.nCols, open, corners);
+    }
+
+    /**
+     * @return number of cells where PLAYER's next piece could start (not counting the starting corner)
+     */
+    public int nCornerCells(Player player) {
+        int nCorners = 0;
+        for (int r = 0; r < this.nRows; r++) {
+            for (int c = 0; c < this.nCols; c++) {
+                if (this.isOpenFor(r, c, player) && this.hasDiagonalNeighbor(r, c, player)) {
+                    nCorners++;
+                }
+            }
+        }
+        return nCorners;
+    }
+
+    /**
+     * @return true if the square is empty and does not share a side with one of PLAYER's pieces
+     */
+    public boolean isOpenFor(int r, int c, Player player) {
+        if (this.board[r][c] != Player.NO_PLAYER) {
+            return false;
+        }
+        return (r + 1 >= this.nRows || this.board[r + 1][c] != player)
+                && (r - 1 < 0 || this.board[r - 1][c] != player)
+                && (c + 1 >= this.nCols || this.board[r][c + 1] != player)
+                && (c - 1 < 0 || this.board[r][c - 1] != player);
+    }
+
+    private boolean hasDiagonalNeighbor(int r, int c, Player player) {
+        return (r + 1 < this.nRows && c + 1 < this.nCols && this.board[r + 1][c + 1] == player)
+                || (r + 1 < this.nRows && c - 1 >= 0 && this.board[r + 1][c - 1] == player)
+                || (r - 1 >= 0 && c + 1 < this.nCols && this.board[r - 1][c + 1] == player)
+                || (r - 1 >= 0 && c - 1 >= 0 && this.board[r - 1][c - 1] == player);
+    }
+
+    /**
+     * Lay the pieces of OTHER on top of this board. Only makes sense when OTHER grew from this board
+     * by placements in cells this board's other descendants never touch (independent endgame regions).
+     * @return this board plus every square that is occupied in OTHER but empty here
+     */
+    public Board overlay(Board other) {
+        final Player[][] newBoard = new Player[this.nRows][this.nCols];
+        final Map<Player, Integer> nSquaresOccupied = new EnumMap<>(Player.class);
+        nSquaresOccupied.putAll(this.nSquaresOccupied);
+        long zobristHash = this.zobristHash;
+        long transposedZobristHash = this.transposedZobristHash;
+        for (int r = 0; r < this.nRows; r++) {
+            newBoard[r] = Arrays.copyOf(this.board[r], this.nCols);
+            for (int c = 0; c < this.nCols; c++) {
+                final Player player = other.board[r][c];
+                if (newBoard[r][c] == Player.NO_PLAYER && player != Player.NO_PLAYER) {
+                    newBoard[r][c] = player;
+                    nSquaresOccupied.put(player, nSquaresOccupied.get(player) + 1);
+                    nSquaresOccupied.put(Player.NO_PLAYER, nSquaresOccupied.get(Player.NO_PLAYER) - 1);
+                    zobristHash ^= Zobrist.squareKey(r * this.nCols + c, player);
+                    if (this.tracksTransposes) {
+                        transposedZobristHash ^= Zobrist.squareKey(this.transposedCell(r, c),
+                                this.transposedPlayer(player));
+                    }
+                }
+            }
+        }
+        return new Board(nRows, nCols, newBoard, playerToStartingCorner, nSquaresOccupied,
+                zobristHash, transposedZobristHash, transposedPlayers, tracksTransposes);
+    }
+
     boolean isFirstMove(Player player) {
         return this.nSquaresOccupied.get(player) == 0;
     }
@@ -288,12 +591,24 @@ public class Board {
         return nRows == board1.nRows
                 && nCols == board1.nCols
                 && Arrays.deepEquals(board, board1.board)
-                && Objects.equals(playerToStartingCorner, board1.playerToStartingCorner)
+                && sameCorners(playerToStartingCorner, board1.playerToStartingCorner)
                 && Objects.equals(nSquaresOccupied, board1.nSquaresOccupied);
     }
 
+    /**
+     * Map.equals would compare the int[] corners by reference, which fails for boards set up separately.
+     */
+    private static boolean sameCorners(Map<Player, int[]> corners1, Map<Player, int[]> corners2) {
+        if (corners1 == corners2) return true;
+        if (!corners1.keySet().equals(corners2.keySet())) return false;
+        for (Map.Entry<Player, int[]> entry : corners1.entrySet()) {
+            if (!Arrays.equals(entry.getValue(), corners2.get(entry.getKey()))) return false;
+        }
+        return true;
+    }
+
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return Long.hashCode(zobristHash);
     }
 }
@@ -0,0 +1,125 @@
+package model.board;
+
+import model.piece.Piece;
+
+/**
+ * Where one player may place pieces on a board, as bitmasks over the board's cells (bit r * nCols + c,
+ * packed 64 to a long). Finding every legal spot for a piece is then a shift and an AND per piece cell
+ * over the whole board, rather than a probe of {@link Board#move} at every cell.
+ *
+ * A piece anchored at (i, j) covers (i + row, j + col) for each of its cells. It fits if every covered
+ * cell is open, and it is legal if on top of that one of them is a corner cell.
+ */
+public class PlacementMasks {
+    final int nRows;
+    final int nCols;
+    /**
+     * Empty cells that do not share a side with one of the player's pieces.
+     */
+    final long[] open;
+    /**
+     * Open cells a new piece could grow from: diagonal to one of the player's pieces, or on their first
+     * move, their starting corner.
+     */
+    final long[] corners;
+
+    PlacementMasks(int nRows, int nCols, long[] open, long[] corners) {
+        this.nRows = nRows;
+        this.nCols = nCols;
+        this.open = open;
+        this.corners = corners;
+    }
+
+    static int nWords(int nCells) {
+        return (nCells + 63) >>> 6;
+    }
+
+    static void set(long[] mask, int cell) {
+        mask[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * @return cells where PIECE's top-left corner can go, as a mask of the same shape
+     */
+    public long[] legalAnchors(Piece piece) {
+        final long[] anchors = this.fittingAnchors(piece);
+        final long[] touching = new long[anchors.length];
+        for (int k = 0; k < piece.nSquares; k++) {
+            orShiftedDown(touching, this.corners, piece.rowLocations.get(k) * this.nCols + piece.colLocations.get(k));
+        }
+        for (int w = 0; w < anchors.length; w++) {
+            anchors[w] &= touching[w];
+        }
+        return anchors;
+    }
+
+    /**
+     * @return cells where PIECE's top-left corner can go if it didn't have to touch a corner, i.e. where it
+     *  fits in the open cells. Once a piece fits nowhere, it never will again: cells only ever close.
+     */
+    public long[] fittingAnchors(Piece piece) {
+        final long[] anchors = this.anchorsInBounds(piece);
+        for (int k = 0; k < piece.nSquares; k++) {
+            andShiftedDown(anchors, this.open, piece.rowLocations.get(k) * this.nCols + piece.colLocations.get(k));
+        }
+        return anchors;
+    }
+
+    /**
+     * @return true if PIECE can legally go anywhere
+     */
+    public boolean anyLegal(Piece piece) {
+        final long[] anchors = this.legalAnchors(piece);
+        for (long word : anchors) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Anchors that keep the whole of PIECE on the board. Only these are allowed through, which also stops
+     * the shifts below from wrapping a piece around from one row into the next.
+     */
+    private long[] anchorsInBounds(Piece piece) {
+        final long[] anchors = new long[nWords(this.nRows * this.nCols)];
+        final int nAnchorCols = this.nCols - piece.nCols + 1;
+        for (int i = 0; i + piece.nRows <= this.nRows; i++) {
+            for (int j = 0; j < nAnchorCols; j++) {
+                set(anchors, i * this.nCols + j);
+            }
+        }
+        return anchors;
+    }
+
+    /**
+     * TARGET &= SOURCE >>> SHIFT, i.e. keep anchors whose cell SHIFT further on is set in SOURCE.
+     */
+    private static void andShiftedDown(long[] target, long[] source, int shift) {
+        final int wordShift = shift >>> 6;
+        final int bitShift = shift & 63;
+        for (int w = 0; w < target.length; w++) {
+            target[w] &= shiftedWord(source, w + wordShift, bitShift);
+        }
+    }
+
+    private static void orShiftedDown(long[] target, long[] source, int shift) {
+        final int wordShift = shift >>> 6;
+        final int bitShift = shift & 63;
+        for (int w = 0; w < target.length; w++) {
+            target[w] |= shiftedWord(source, w + wordShift, bitShift);
+        }
+    }
+
+    /**
+     * @return bits [64 * W + BIT_SHIFT, 64 * W + BIT_SHIFT + 64) of SOURCE, zero past its end
+     */
+    private static long shiftedWord(long[] source, int w, int bitShift) {
+        final long low = w < source.length ? source[w] >>> bitShift : 0L;
+        if (bitShift == 0 || w + 1 >= source.length) {
+            return low;
+        }
+        return low | source[w + 1] << (64 - bitShift);
+    }
+}
@@ -0,0 +1,35 @@
+package model.board;
+
+import model.player.Player;
+
+/**
+ * Zobrist keys for position hashing. Keys are derived from a fixed mixing function rather than a
+ * seeded Random so that hashes are identical across processes, which matters once they are written
+ * to disk (opening books and the like).
+ */
+public final class Zobrist {
+    private static final long SQUARE_SALT = 0x5EED_0000_0000_0001L;
+    private static final int N_PLAYER_VALUES = Player.values().length;
+
+    private Zobrist() {
+    }
+
+    /**
+     * SplitMix64 finalizer: a cheap bijective scrambler with good avalanche behaviour.
+     */
+    public static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @param cell row-major cell index
+     * @param player owner of the cell
+     * @return the key to XOR in when PLAYER occupies CELL
+     */
+    public static long squareKey(int cell, Player player) {
+        return mix(SQUARE_SALT + (long) cell * N_PLAYER_VALUES + player.ordinal());
+    }
+}
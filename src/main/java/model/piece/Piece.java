@@ -94,7 +94,11 @@ public class Piece {
         return this.transpose().flip(true, false);
     }
 
-    private Piece transpose() {
+    /**
+     * Reflect across the main diagonal.
+     * @return the same piece with rows and columns swapped
+     */
+    public Piece transpose() {
         return new Piece(this.nCols, this.nRows, this.colLocations, this.rowLocations);
     }
 
@@ -0,0 +1,54 @@
+package engine;
+
+import engine.evaluators.MaterialEvaluator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveBeamTest {
+    private static final double[] SPREAD_OUT = {10, 9, 8, 7, 6, 5, 4, 3};
+
+    @Test
+    void width_widerNearRoot() {
+        final AdaptiveBeam beam = new AdaptiveBeam(1, 8, 2, 1, 0, 100);
+        assertEquals(2, beam.width(1, SPREAD_OUT, 8));
+        assertEquals(4, beam.width(3, SPREAD_OUT, 8));
+        assertEquals(8, beam.width(20, SPREAD_OUT, 8));
+        assertEquals(3, beam.width(20, SPREAD_OUT, 3));
+    }
+
+    @Test
+    void width_scalesWithTimeLeft() {
+        final double[] timeScale = {1};
+        final AdaptiveBeam beam = new AdaptiveBeam(1, 8, 4, 0, 0, 100, () -> timeScale[0]);
+        assertEquals(4, beam.width(1, SPREAD_OUT, 8));
+        timeScale[0] = 0.5;
+        assertEquals(2, beam.width(1, SPREAD_OUT, 8));
+        timeScale[0] = 0;
+        assertEquals(1, beam.width(1, SPREAD_OUT, 8));
+    }
+
+    @Test
+    void width_letsInNearTies() {
+        final AdaptiveBeam beam = new AdaptiveBeam(1, 8, 2, 0, 0.5, 100);
+        assertEquals(2, beam.width(1, SPREAD_OUT, 8));
+        assertEquals(5, beam.width(1, new double[]{10, 9, 9, 8.6, 8.5, 7}, 6));
+    }
+
+    @Test
+    void width_cutsDominatedMoves() {
+        final AdaptiveBeam beam = new AdaptiveBeam(2, 8, 6, 0, 0, 1.5);
+        assertEquals(2, beam.width(1, SPREAD_OUT, 8));
+        assertEquals(3, beam.width(1, new double[]{10, 9, 9, 1, 1, 1, 1}, 7));
+    }
+
+    @Test
+    void candidateMoves_followBeam() {
+        final Engine engine = new Engine(new MaterialEvaluator(), 2, 10000);
+        engine.setAdaptiveBeam(new AdaptiveBeam(1, 10, 1, 3, 0, 100));
+        final GameState state = GameState.newGame().possibleMoves().get(0);
+        assertEquals(1, engine.candidateMoves(state, 1).size());
+        assertEquals(7, engine.candidateMoves(state, 3).size());
+        assertEquals(10, engine.candidateMoves(state, 10).size());
+    }
+}
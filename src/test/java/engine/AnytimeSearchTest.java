@@ -0,0 +1,104 @@
+package engine;
+
+import engine.duo.DuoSearch;
+import engine.evaluators.MaterialEvaluator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnytimeSearchTest {
+    /**
+     * Far deeper than any test will wait for.
+     */
+    private static final int UNREACHABLE_DEPTH = 40;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static Engine newEngine() {
+        return new Engine(new MaterialEvaluator(), 3, 100000);
+    }
+
+    @Test
+    void searchAsync_reportsEachDepth() throws Exception {
+        final GameState state = GameState.newGame();
+        final List<EvaluatedGameState> improvements = new CopyOnWriteArrayList<>();
+        final AnytimeSearch search = newEngine().searchAsync(state, 3, false, executor, improvements::add);
+
+        final EvaluatedGameState result = search.get(1, TimeUnit.MINUTES);
+        assertEquals(3, improvements.size());
+        assertEquals(newEngine().evaluate(state, 3, false), result);
+        assertEquals(newEngine().evaluate(state, 1, false), improvements.get(0));
+        assertEquals(result, search.latest().get());
+    }
+
+    @Test
+    void cancel_stopsTheWorkers() throws Exception {
+        final Engine engine = newEngine();
+        final BlockingQueue<EvaluatedGameState> improvements = new LinkedBlockingQueue<>();
+        final AnytimeSearch search = engine.searchAsync(GameState.newGame(), UNREACHABLE_DEPTH, true, executor,
+                improvements::add);
+        assertNotNull(improvements.poll(1, TimeUnit.MINUTES));
+
+        assertTrue(search.cancel(false));
+        assertTrue(search.awaitStopped(1, TimeUnit.MINUTES));
+        assertThrows(CancellationException.class, search::join);
+        // Nothing half-searched was kept.
+        assertTrue(engine.transpositionTable.asMap().keySet().stream().allMatch(task -> task.getDepth() < 10));
+    }
+
+    @Test
+    void cancel_stopsADuoSearch() throws Exception {
+        final Engine engine = newEngine();
+        engine.setDuoSearch(new DuoSearch(GameState.DUO_SIZE, GameState.DUO_SIZE));
+        final BlockingQueue<EvaluatedGameState> improvements = new LinkedBlockingQueue<>();
+        final AnytimeSearch search = engine.searchAsync(GameState.newDuoGame(), UNREACHABLE_DEPTH, false, executor,
+                improvements::add);
+        // Depth 3 takes a second or two, and depth 4 about a minute.
+        for (int depth = 1; depth <= 3; depth++) {
+            assertNotNull(improvements.poll(1, TimeUnit.MINUTES));
+        }
+        // Into the duo search at depth 4.
+        Thread.sleep(500);
+
+        assertTrue(search.cancel(false));
+        assertTrue(search.awaitStopped(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void stop_completesWithDeepestSoFar() throws Exception {
+        final BlockingQueue<EvaluatedGameState> improvements = new LinkedBlockingQueue<>();
+        final AnytimeSearch search = newEngine().searchAsync(GameState.newGame(), UNREACHABLE_DEPTH, false,
+                executor, improvements::add);
+        improvements.poll(1, TimeUnit.MINUTES);
+        improvements.poll(1, TimeUnit.MINUTES);
+
+        final EvaluatedGameState result = search.stop().get();
+        assertTrue(search.awaitStopped(1, TimeUnit.MINUTES));
+        assertEquals(result, search.join());
+        assertTrue(improvements.isEmpty() || improvements.contains(result));
+    }
+
+    @Test
+    void orTimeout_stopsTheSearch() throws Exception {
+        final AnytimeSearch search = newEngine().searchAsync(GameState.newGame(), UNREACHABLE_DEPTH, false,
+                executor, result -> { });
+        search.orTimeout(100, TimeUnit.MILLISECONDS);
+        assertTrue(search.awaitStopped(1, TimeUnit.MINUTES));
+        assertTrue(search.isCompletedExceptionally());
+    }
+}
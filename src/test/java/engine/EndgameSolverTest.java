@@ -0,0 +1,105 @@
+package engine;
+
+import engine.evaluators.MaterialEvaluator;
+import game.PieceRegistry;
+import game.StandardPieces;
+import model.board.Board;
+import model.piece.Piece;
+import model.player.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndgameSolverTest {
+    private final EndgameSolver solver = new EndgameSolver(new MaterialEvaluator(), 64, 10000);
+
+    /**
+     * Small square board where everybody holds the same few pieces.
+     */
+    private static GameState smallGame(int size, Piece... pieces) {
+        final Board board = new Board(size, size);
+        final int[] unplayed = GameState.unplayedMasks(PieceRegistry.maskOf(pieces));
+        return GameState.of(board, GameState.STARTING_ORDER, unplayed, 0);
+    }
+
+    /**
+     * Plain max^n over the whole tree: no memo, no regions.
+     */
+    private static GameState naiveFinalState(GameState state) {
+        if (state.isOver()) {
+            return state;
+        }
+        final Player nowPlaying = state.nowPlaying();
+        GameState best = null;
+        int bestOwn = Integer.MIN_VALUE;
+        int bestMargin = Integer.MIN_VALUE;
+        for (GameState child : state.possibleMoves()) {
+            final GameState finalState = naiveFinalState(child);
+            final Map<Player, Integer> counts = finalState.getBoard().getNSquaresOccupied();
+            int margin = counts.get(nowPlaying);
+            for (Player player : GameState.STARTING_ORDER) {
+                if (player != nowPlaying) {
+                    margin -= counts.get(player);
+                }
+            }
+            if (counts.get(nowPlaying) > bestOwn || (counts.get(nowPlaying) == bestOwn && margin > bestMargin)) {
+                bestOwn = counts.get(nowPlaying);
+                bestMargin = margin;
+                best = finalState;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void applies_notAtStartOfRealGame() {
+        assertFalse(solver.applies(GameState.newGame()));
+    }
+
+    @Test
+    void applies_smallBoard() {
+        assertTrue(solver.applies(smallGame(4, StandardPieces.PIECE_Q)));
+    }
+
+    @Test
+    void independentRegions_farApartCorners() {
+        // At the start of a 9x9 game, every corner can still reach the middle.
+        GameState state = smallGame(9, StandardPieces.PIECE_Q, StandardPieces.PIECE_W);
+        assertEquals(1, EndgameSolver.independentRegions(state).size());
+
+        // On a 3x3 board, each corner player's monomino walls off the other corners' diagonals.
+        state = smallGame(3, StandardPieces.PIECE_Q, StandardPieces.PIECE_W);
+        for (int i = 0; i < 4; i++) {
+            state = state.possibleMoves().get(0);
+        }
+        // Walled off, most of them have also left the game; put them back.
+        state = GameState.of(state.getBoard(), GameState.STARTING_ORDER, state.unplayedPieces, 4);
+        final List<Set<Player>> regions = EndgameSolver.independentRegions(state);
+        assertTrue(regions.size() > 1);
+    }
+
+    @Test
+    void solve_matchesNaiveSearch() {
+        final GameState state = smallGame(5, StandardPieces.PIECE_Q, StandardPieces.PIECE_W);
+        final EndgameSolver.Solution solution = solver.solveExactly(state);
+
+        assertTrue(solution.getFinalState().isOver());
+        assertTrue(state.possibleMoves().contains(solution.getBestMove()));
+        assertEquals(naiveFinalState(state).getBoard().getNSquaresOccupied(),
+                solution.getFinalState().getBoard().getNSquaresOccupied());
+    }
+
+    @Test
+    void solve_finalCountsAsEvaluation() {
+        final GameState state = smallGame(4, StandardPieces.PIECE_Q, StandardPieces.PIECE_W);
+        final EvaluatedGameState solved = solver.solve(state);
+        final Map<Player, Integer> counts = naiveFinalState(state).getBoard().getNSquaresOccupied();
+        for (Player player : GameState.STARTING_ORDER) {
+            assertEquals(counts.get(player).doubleValue(), solved.getEvaluation().getScores().get(player));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package engine;
+
+import engine.evaluators.MaterialEvaluator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineTest {
+    @Test
+    void lookup_deeperResultServesShallowerRequest() throws Exception {
+        final Engine engine = new Engine(new MaterialEvaluator(), 2, 10000);
+        final GameState state = GameState.newGame().possibleMoves().get(0);
+        engine.evaluate(state, 2, false);
+
+        for (GameState child : engine.candidateMoves(state, 2)) {
+            final EvaluatedGameState deeper = engine.lookup(child, 1);
+            assertEquals(deeper, engine.lookup(child, 0));
+            assertNull(engine.transpositionTable.getIfPresent(new EvaluationTask(child, 0)));
+        }
+    }
+
+    @Test
+    void evaluate_recordsBestMoveHint() throws Exception {
+        final Engine engine = new Engine(new MaterialEvaluator(), 2, 10000);
+        final GameState state = GameState.newGame().trackingTransposes().possibleMoves().get(0);
+        final EvaluatedGameState result = engine.evaluate(state, 2, false);
+        assertEquals(result.getBestMove().getLastMove(), engine.hint(state));
+        assertEquals(Move.transposed(engine.hint(state)), engine.hint(state.transposed()));
+    }
+
+    @Test
+    void candidateMoves_includeHintedMove() {
+        final Engine engine = new Engine(new MaterialEvaluator(), 2, 10000);
+        final GameState state = GameState.newGame().possibleMoves().get(0);
+        final List<GameState> possibleMoves = state.possibleMoves();
+        final GameState unlikely = possibleMoves.get(possibleMoves.size() - 1);
+        assertFalse(engine.candidateMoves(state, 2).contains(unlikely));
+
+        engine.recordHint(state, unlikely.getLastMove());
+        final List<GameState> candidates = engine.candidateMoves(state, 2);
+        assertEquals(2, candidates.size());
+        assertTrue(candidates.contains(unlikely));
+    }
+
+    @Test
+    void withMemoryBudget_staysWithinBudget() throws Exception {
+        final long budget = 2 << 20;
+        final Engine engine = Engine.withMemoryBudget(new MaterialEvaluator(), 4, budget);
+        engine.evaluate(GameState.newGame().possibleMoves().get(0), 3, false);
+        assertTrue(engine.memoryUsage() > 0);
+        assertTrue(engine.memoryUsage() <= budget);
+    }
+
+    @Test
+    void shrink_halvesTableAndKeepsItThere() throws Exception {
+        final Engine engine = new Engine(new MaterialEvaluator(), 4, 100000);
+        final GameState state = GameState.newGame().possibleMoves().get(0);
+        engine.evaluate(state, 3, false);
+        final long before = engine.tableBytes.sum();
+        engine.shrink();
+        assertTrue(engine.tableBytes.sum() <= before / 2);
+
+        engine.evaluate(state.possibleMoves().get(0), 3, false);
+        assertTrue(engine.tableBytes.sum() <= before / 2);
+        engine.transpositionTable.invalidateAll();
+        assertEquals(0, engine.tableBytes.sum());
+    }
+}
@@ -0,0 +1,31 @@
+package engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluationTaskTest {
+    @Test
+    void equals_positionAndItsTranspose() {
+        GameState state = GameState.newGame().trackingTransposes();
+        for (int i = 0; i < 3; i++) {
+            state = state.possibleMoves().get(i);
+        }
+        assertEquals(new EvaluationTask(state, 2), new EvaluationTask(state.transposed(), 2));
+        assertNotEquals(new EvaluationTask(state, 2), new EvaluationTask(state.transposed(), 1));
+    }
+
+    @Test
+    void equals_notOnHashCollision() {
+        final List<GameState> moves = GameState.newGame().possibleMoves();
+        final GameState state = moves.get(0);
+        final GameState other = moves.get(1);
+        // OTHER's position under STATE's hashes.
+        final GameState colliding = new GameState(other.getBoard(), other.getNextPlayers(), other.unplayedPieces,
+                other.getTurnNumber(), state.getPositionHash(), state.getTransposedHash(), other.getLastMove());
+        assertEquals(new EvaluationTask(state, 2).hashCode(), new EvaluationTask(colliding, 2).hashCode());
+        assertNotEquals(new EvaluationTask(state, 2), new EvaluationTask(colliding, 2));
+    }
+}
@@ -2,7 +2,14 @@ package engine;
 
 import engine.evaluators.MaterialEvaluator;
 import engine.evaluators.MaterialMinusOthersEvaluator;
+import game.PieceRegistry;
+import model.board.PlacementMasks;
+import model.player.Player;
+import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Random;
 
@@ -11,20 +18,179 @@ import static org.junit.jupiter.api.Assertions.*;
 class GameStateTest {
     public static void main(String[] args) throws Exception {
         GameState game = GameState.newGame();
-        Random random = new Random();
-        BoardEvaluator evaluator = new MaterialMinusOthersEvaluator(random);
-        Engine engine = new Engine(evaluator, 8, 500000);
+        BoardEvaluator evaluator = new MaterialMinusOthersEvaluator(new Random().nextLong());
+        Engine engine = Engine.withMemoryBudget(evaluator, 8, Runtime.getRuntime().maxMemory() / 2);
 
 
         while (!game.isOver()) {
             EvaluatedGameState evaluatedGameState = engine.evaluate(game, 5, true);
             game = evaluatedGameState.getBestMove();
-//            System.out.println("Table size: " + engine.transpositionTable.size());
+//            System.out.println("Table bytes: " + engine.memoryUsage());
             System.out.println(game);
             System.out.println(evaluator.evaluate(game).rounded());
             System.out.println();
         }
     }
 
+    /**
+     * A few plies into a game, so that every player has a piece on the board.
+     */
+    private static GameState midOpening() {
+        GameState state = GameState.newGame();
+        for (int i = 0; i < 5; i++) {
+            state = state.possibleMoves().get(i);
+        }
+        return state;
+    }
+
+    @Test
+    void transposed_hashesSwap() {
+        final GameState state = midOpening().trackingTransposes();
+        final GameState transposed = state.transposed();
+        assertEquals(state.getTransposedHash(), transposed.getPositionHash());
+        assertEquals(state.getPositionHash(), transposed.getTransposedHash());
+        assertEquals(state.canonicalHash(), transposed.canonicalHash());
+        assertEquals(state, transposed.transposed());
+    }
+
+    @Test
+    void transposed_untrackedIsItsOwnCanonicalForm() {
+        final GameState state = midOpening();
+        final GameState transposed = state.transposed();
+        assertEquals(state.getPositionHash(), state.canonicalHash());
+        assertEquals(state.trackingTransposes().getTransposedHash(), transposed.getPositionHash());
+        assertEquals(transposed.getPositionHash(), transposed.canonicalHash());
+        assertEquals(state, transposed.transposed());
+        for (GameState child : state.possibleMoves()) {
+            assertTrue(child.isCanonical());
+            assertEquals(child.getPositionHash(), child.trackingTransposes().getPositionHash());
+        }
+    }
 
-}
\ No newline at end of file
+    @Test
+    void transposed_childrenAreTransposedChildren() {
+        final GameState state = midOpening().trackingTransposes();
+        final List<GameState> transposedChildren = state.transposed().possibleMoves();
+        for (GameState child : state.possibleMoves()) {
+            final GameState transposedChild = child.transposed();
+            assertTrue(transposedChildren.contains(transposedChild));
+            assertEquals(child.getTransposedHash(), transposedChild.getPositionHash());
+        }
+    }
+
+    /**
+     * Moves found by probing every cell with every unplayed orientation, the slow way.
+     */
+    private static List<Integer> probedMoves(GameState state) {
+        final List<Integer> moves = new ArrayList<>();
+        for (int i = 0; i < GameState.N_ROWS; i++) {
+            for (int j = 0; j < GameState.N_COLS; j++) {
+                for (int orientationId = 0; orientationId < PieceRegistry.N_ORIENTATIONS; orientationId++) {
+                    if (state.play(Move.pack(orientationId, i, j)).isPresent()) {
+                        moves.add(Move.pack(orientationId, i, j));
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    @Test
+    void possibleMoves_matchProbingEveryCell() {
+        GameState state = GameState.newGame();
+        for (int ply = 0; ply < 48 && !state.isOver(); ply++) {
+            final List<GameState> moves = state.possibleMoves();
+            if (ply % 4 == 0) {
+                final List<Integer> packedMoves = new ArrayList<>();
+                for (GameState move : moves) {
+                    if (move.getLastMove() != Move.NONE) {
+                        packedMoves.add(move.getLastMove());
+                    }
+                }
+                assertEquals(probedMoves(state), packedMoves);
+                assertEquals(!packedMoves.isEmpty(), state.hasAnyMove());
+            }
+            state = moves.get(moves.size() / 2);
+        }
+    }
+
+    @Test
+    void hasAnyMove_falseOnceBoxedIn() {
+        // Play the first move every time until someone is boxed in, then put them back in the game.
+        GameState state = GameState.newGame();
+        while (state.getNextPlayers().size() == GameState.STARTING_ORDER.size()) {
+            state = state.possibleMoves().get(0);
+        }
+        final List<Player> withBoxedIn = new ArrayList<>(GameState.STARTING_ORDER);
+        withBoxedIn.removeAll(state.getNextPlayers());
+        withBoxedIn.addAll(state.getNextPlayers());
+        state = GameState.of(state.getBoard(), withBoxedIn, state.unplayedPieces, state.getTurnNumber());
+        assertFalse(state.hasAnyMove());
+        assertEquals(List.of(state.pass()), state.possibleMoves());
+    }
+
+    @Test
+    void possibleMoves_dropBlockedPlayersStraightAway() {
+        final Random random = new Random(5);
+        for (GameState start : List.of(GameState.newGame(), GameState.newDuoGame())) {
+            GameState state = start;
+            while (!state.isOver()) {
+                assertTrue(state.hasAnyMove(), "turn " + state.getTurnNumber());
+                final List<GameState> moves = state.possibleMoves();
+                for (GameState child : moves.subList(0, Math.min(moves.size(), 8))) {
+                    final LegalMoves scratch = LegalMoves.of(child.getBoard(), state.getNextPlayers(),
+                            child.unplayedPieces);
+                    for (Player player : state.getNextPlayers()) {
+                        assertEquals(scratch.of(player).length > 0, child.getNextPlayers().contains(player),
+                                player + " at turn " + child.getTurnNumber());
+                    }
+                }
+                state = moves.get(random.nextInt(moves.size()));
+            }
+        }
+    }
+
+    @Test
+    void livePieces_deadOnceTheyFitNowhere() {
+        final Random random = new Random(3);
+        GameState state = GameState.newGame();
+        while (!state.isOver()) {
+            final List<GameState> moves = state.possibleMoves();
+            final GameState child = moves.get(random.nextInt(moves.size()));
+            for (Player player : child.getNextPlayers()) {
+                final int live = child.livePieces(player);
+                assertEquals(0, live & ~state.livePieces(player));
+                final PlacementMasks masks = child.getBoard().placementMasks(player);
+                for (int pieces = child.unplayedPieces(player); pieces != 0; pieces &= pieces - 1) {
+                    final int pieceId = Integer.numberOfTrailingZeros(pieces);
+                    boolean fits = false;
+                    for (int orientationId : PieceRegistry.orientations(pieceId)) {
+                        fits |= Arrays.stream(masks.fittingAnchors(PieceRegistry.orientedPiece(orientationId)))
+                                .anyMatch(word -> word != 0);
+                    }
+                    assertEquals(fits, (live & 1 << pieceId) != 0, "turn " + child.getTurnNumber());
+                }
+            }
+            state = child;
+        }
+    }
+
+    @Test
+    void legalMoves_incrementalMatchesScratch() {
+        final Random random = new Random(11);
+        for (GameState start : List.of(GameState.newGame(), GameState.newDuoGame())) {
+            GameState state = start;
+            while (!state.isOver()) {
+                final LegalMoves incremental = state.legalMoves();
+                final LegalMoves scratch = LegalMoves.of(state.getBoard(), state.getNextPlayers(),
+                        state.unplayedPieces);
+                for (Player player : state.getNextPlayers()) {
+                    assertArrayEquals(scratch.of(player), incremental.of(player), "turn " + state.getTurnNumber());
+                    assertEquals(scratch.livePieces(player), incremental.livePieces(player));
+                }
+                final List<GameState> moves = state.possibleMoves();
+                state = moves.get(random.nextInt(moves.size()));
+            }
+        }
+    }
+}
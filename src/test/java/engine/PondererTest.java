@@ -0,0 +1,101 @@
+package engine;
+
+import engine.evaluators.MaterialEvaluator;
+import model.player.Player;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PondererTest {
+    private static final int DEPTH = 2;
+
+    @Test
+    void ponder_fillsTableForGuessedLines() throws Exception {
+        final Engine engine = new Engine(new MaterialEvaluator(), 2, 10000);
+        final GameState afterOurMove = GameState.newGame().possibleMoves().get(0);
+        try (Ponderer ponderer = engine.ponderer(2, 2)) {
+            ponderer.ponder(afterOurMove, Player.A, DEPTH);
+            ponderer.awaitIdle();
+            // Two guesses for each of three opponents, then our two candidates.
+            assertEquals(16, ponderer.nLines());
+
+            GameState guessed = afterOurMove;
+            for (int ply = 0; ply < 3; ply++) {
+                guessed = engine.candidateMoves(guessed, DEPTH).get(0);
+                ponderer.observe(guessed);
+            }
+            assertEquals(2, ponderer.nLines());
+            for (GameState candidate : engine.candidateMoves(guessed, DEPTH)) {
+                assertNotNull(engine.transpositionTable.getIfPresent(new EvaluationTask(candidate, DEPTH - 1)));
+            }
+        }
+    }
+
+    @Test
+    void ponder_returnsBeforeGuessing() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final MaterialEvaluator material = new MaterialEvaluator();
+        final Engine engine = new Engine(state -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return material.evaluate(state);
+        }, 2, 10000);
+        final GameState afterOurMove = GameState.newGame().possibleMoves().get(0);
+        try (Ponderer ponderer = engine.ponderer(2, 1)) {
+            // Guessing can't get anywhere until released, so this only returns if it doesn't wait for it.
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> ponderer.ponder(afterOurMove, Player.A, DEPTH));
+            release.countDown();
+            ponderer.awaitIdle();
+            assertEquals(16, ponderer.nLines());
+        }
+    }
+
+    @Test
+    void observe_unguessedMoveStartsOver() throws Exception {
+        final Engine engine = new Engine(new MaterialEvaluator(), 2, 10000);
+        final GameState afterOurMove = GameState.newGame().possibleMoves().get(0);
+        try (Ponderer ponderer = engine.ponderer(1, 1)) {
+            ponderer.ponder(afterOurMove, Player.A, DEPTH);
+            final List<GameState> replies = afterOurMove.possibleMoves();
+            final GameState unguessed = replies.get(replies.size() - 1);
+            assertNotEquals(engine.candidateMoves(afterOurMove, DEPTH).get(0), unguessed);
+
+            ponderer.observe(unguessed);
+            ponderer.awaitIdle();
+            // One guess for each of the two remaining opponents, then our two candidates.
+            assertEquals(2, ponderer.nLines());
+            ponderer.stop();
+            assertEquals(0, ponderer.nLines());
+        }
+    }
+
+    @Test
+    void stop_releasesThreads() throws Exception {
+        // Wide and deep enough that no line finishes while the test waits.
+        final Engine engine = new Engine(new MaterialEvaluator(), 8, 100000);
+        final GameState afterOurMove = GameState.newGame().possibleMoves().get(0);
+        try (Ponderer ponderer = engine.ponderer(2, 2)) {
+            ponderer.ponder(afterOurMove, Player.A, 6);
+            // Until one of our candidates is being searched.
+            assertTimeoutPreemptively(Duration.ofMinutes(1), () -> {
+                while (engine.nodeCount() == 0) {
+                    Thread.sleep(10);
+                }
+            });
+            final List<AnytimeSearch> work = ponderer.work();
+
+            ponderer.stop();
+            for (AnytimeSearch search : work) {
+                assertTrue(search.awaitStopped(10, TimeUnit.SECONDS));
+            }
+        }
+    }
+}
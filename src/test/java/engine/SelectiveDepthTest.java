@@ -0,0 +1,83 @@
+package engine;
+
+import engine.evaluators.MaterialEvaluator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelectiveDepthTest {
+    /**
+     * A few moves into a game, so that the shallow pass has something to tell the moves apart by.
+     */
+    private static GameState opening() {
+        GameState state = GameState.newGame();
+        for (int i = 0; i < 6; i++) {
+            final List<GameState> moves = state.possibleMoves();
+            state = moves.get(i * 7 % moves.size());
+        }
+        return state;
+    }
+
+    @Test
+    void evaluate_sameResultWhenEveryReducedMoveIsResearched() throws Exception {
+        final Engine plain = new Engine(new MaterialEvaluator(), 4, 100000);
+        final Engine selective = new Engine(new MaterialEvaluator(), 4, 100000);
+        selective.setSelectiveDepth(new SelectiveDepth(1, 2, 1, Double.POSITIVE_INFINITY, 0));
+        final EvaluatedGameState expected = plain.evaluate(opening(), 3, false);
+        final EvaluatedGameState actual = selective.evaluate(opening(), 3, false);
+        assertEquals(expected.getBestMove(), actual.getBestMove());
+        assertEquals(expected.getEvaluation(), actual.getEvaluation());
+    }
+
+    @Test
+    void evaluate_reducedMovesCostFewerNodes() throws Exception {
+        final Engine plain = new Engine(new MaterialEvaluator(), 4, 100000);
+        final Engine selective = new Engine(new MaterialEvaluator(), 4, 100000);
+        selective.setSelectiveDepth(new SelectiveDepth(1, 2, 1, Double.NEGATIVE_INFINITY, 0));
+        plain.evaluate(opening(), 3, false);
+        final EvaluatedGameState result = selective.evaluate(opening(), 3, false);
+        assertTrue(selective.nodeCount() < plain.nodeCount());
+        // Never re-searched, so the result must be the first move's.
+        assertEquals(selective.candidateMoves(opening(), 3).get(0), result.getBestMove());
+    }
+
+    @Test
+    void evaluate_bestMoveNeverReduced() throws Exception {
+        final Engine plain = new Engine(new MaterialEvaluator(), 4, 100000);
+        final Engine selective = new Engine(new MaterialEvaluator(), 4, 100000);
+        selective.setSelectiveDepth(new SelectiveDepth(0, 2, 1, 0, 0));
+        final EvaluatedGameState result = selective.evaluate(opening(), 3, false);
+        assertTrue(plain.candidateMoves(opening(), 3).contains(result.getBestMove()));
+    }
+
+    @Test
+    void assign_extendsIntoForcingPositionsOnly() {
+        final SelectiveDepth selectiveDepth = new SelectiveDepth(1, 2, 1, 0, 3);
+        final Random random = new Random(9);
+        GameState state = GameState.newGame();
+        boolean extended = false;
+        while (!state.isOver()) {
+            final List<GameState> moves = state.possibleMoves();
+            final List<EvaluatedGameState> candidates = new ArrayList<>();
+            for (GameState move : moves) {
+                candidates.add(new EvaluatedGameState(move, null));
+            }
+            final int[] fullDepths = new int[candidates.size()];
+            final int[] depths = new int[candidates.size()];
+            selectiveDepth.assign(state, 4, candidates, Move.NONE, fullDepths, depths);
+            for (int i = 0; i < candidates.size(); i++) {
+                final boolean forcing = selectiveDepth.isForcing(candidates.get(i).getBestMove());
+                final boolean expectExtended = forcing && !selectiveDepth.isForcing(state);
+                assertEquals(expectExtended ? 4 : 3, fullDepths[i]);
+                assertEquals(expectExtended || i == 0 ? fullDepths[i] : 2, depths[i]);
+                extended |= expectExtended;
+            }
+            state = moves.get(random.nextInt(moves.size()));
+        }
+        assertTrue(extended);
+    }
+}
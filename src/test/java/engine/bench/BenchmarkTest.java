@@ -0,0 +1,75 @@
+package engine.bench;
+
+import engine.Engine;
+import engine.GameState;
+import engine.Move;
+import engine.evaluators.MaterialEvaluator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BenchmarkTest {
+    @Test
+    void standard_everyPositionPlayable() throws Exception {
+        final List<BenchmarkPosition> suite = BenchmarkSuite.standard();
+        assertFalse(suite.isEmpty());
+        for (String phase : List.of("opening", "midgame", "late", "endgame")) {
+            assertTrue(suite.stream().anyMatch(position -> position.getPhase().equals(phase)));
+        }
+        for (BenchmarkPosition position : suite) {
+            final GameState state = position.position();
+            assertFalse(state.isOver(), position.getName());
+            if (position.getBestMove() != Move.NONE) {
+                assertTrue(state.play(position.getBestMove()).isPresent(), position.getName());
+            }
+        }
+    }
+
+    @Test
+    void suite_roundTrip() throws Exception {
+        final List<BenchmarkPosition> suite = BenchmarkSuite.standard();
+        final StringWriter written = new StringWriter();
+        BenchmarkSuite.write(written, suite);
+        assertEquals(suite, BenchmarkSuite.read(new BufferedReader(new StringReader(written.toString()))));
+    }
+
+    @Test
+    void runAtDepth_reproducible(@TempDir Path dir) throws Exception {
+        final List<BenchmarkPosition> suite = BenchmarkSuite.standard().subList(0, 3);
+        final Benchmark benchmark = new Benchmark(() -> new Engine(new MaterialEvaluator(), 3, 10000));
+        final List<BenchmarkResult> results = benchmark.runAtDepth(suite, 2);
+        // 1 + 3 + 9 positions.
+        assertEquals(13, results.get(0).getNodes());
+
+        final Path baseline = dir.resolve("baseline.txt");
+        Benchmark.writeBaseline(baseline, results);
+        final Map<String, BenchmarkResult> read = Benchmark.readBaseline(baseline);
+        assertEquals(results.get(1).getNodes(), read.get(suite.get(1).getName()).getNodes());
+        assertEquals(results.get(1).isFound(), read.get(suite.get(1).getName()).isFound());
+    }
+
+    @Test
+    void regressions_flagsWorseSearch() {
+        final BenchmarkResult before = new BenchmarkResult("p", 4, 1000, 100, 0.5, 7, true);
+        final Map<String, BenchmarkResult> baseline = Map.of("p", before);
+        assertEquals(List.of(), Benchmark.regressions(baseline, List.of(before), 0.1));
+        assertEquals(List.of(), Benchmark.regressions(baseline,
+                List.of(new BenchmarkResult("q", 1, 1, 100, 0, 0, false)), 0.1));
+
+        final List<String> regressions = Benchmark.regressions(baseline,
+                List.of(new BenchmarkResult("p", 4, 2000, 400, 0.2, 8, false)), 0.1);
+        assertEquals(4, regressions.size());
+        assertTrue(regressions.get(0).contains("best move"));
+        assertTrue(regressions.get(1).contains("2000 nodes"));
+        assertTrue(regressions.get(2).contains("hit rate"));
+        assertTrue(regressions.get(3).startsWith("suite"));
+    }
+}
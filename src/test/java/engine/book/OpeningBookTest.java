@@ -0,0 +1,58 @@
+package engine.book;
+
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.GameState;
+import engine.evaluators.MaterialEvaluator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+    @TempDir
+    Path tempDir;
+
+    private Engine engine;
+    private OpeningBook book;
+
+    /**
+     * Two plies, expanding two candidates each: the start position plus its two best replies.
+     */
+    @BeforeEach
+    void buildSmallBook() throws Exception {
+        engine = new Engine(new MaterialEvaluator(), 2, 1000);
+        final Path file = tempDir.resolve("book.bin");
+        new OpeningBookBuilder(engine, 1, 2, 2).build(file);
+        book = OpeningBook.open(file);
+    }
+
+    @Test
+    void size() {
+        assertEquals(3, book.size());
+    }
+
+    @Test
+    void lookup_startingPosition() throws Exception {
+        final GameState start = GameState.newGame();
+        final Optional<EvaluatedGameState> booked = book.lookup(start, 1);
+        assertTrue(booked.isPresent());
+        assertEquals(engine.evaluate(start, 1, false).getBestMove(), booked.get().getBestMove());
+    }
+
+    @Test
+    void lookup_deeperThanBooked() {
+        assertTrue(book.lookup(GameState.newGame(), 2).isEmpty());
+    }
+
+    @Test
+    void lookup_notInBook() {
+        final GameState start = GameState.newGame();
+        final GameState notBooked = start.possibleMoves().get(0).possibleMoves().get(0).possibleMoves().get(0);
+        assertTrue(book.lookup(notBooked, 1).isEmpty());
+    }
+}
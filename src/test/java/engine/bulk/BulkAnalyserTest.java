@@ -0,0 +1,104 @@
+package engine.bulk;
+
+import engine.Engine;
+import engine.GameState;
+import engine.evaluators.MaterialEvaluator;
+import engine.record.PositionCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkAnalyserTest {
+    private static final int N_POSITIONS = 12;
+
+    private static List<GameState> positions() {
+        final List<GameState> positions = new ArrayList<>();
+        GameState state = GameState.newGame();
+        for (int i = 0; i < N_POSITIONS; i++) {
+            positions.add(state);
+            state = state.possibleMoves().get(i % 3);
+        }
+        return positions;
+    }
+
+    private static Path writeInput(Path dir) throws Exception {
+        final List<String> lines = new ArrayList<>();
+        for (GameState position : positions()) {
+            lines.add(PositionCodec.toBase64(position));
+        }
+        lines.add(5, "not a position");
+        return Files.write(dir.resolve("positions.txt"), lines, StandardCharsets.US_ASCII);
+    }
+
+    private static BulkAnalyser analyser(long timeLimitMillis, int depth) {
+        return new BulkAnalyser(new Engine(new MaterialEvaluator(), 3, 10000), 3, depth, timeLimitMillis, 4, 2);
+    }
+
+    @Test
+    void new_rejectsDepthZero() {
+        assertThrows(IllegalArgumentException.class, () -> analyser(0, 0));
+    }
+
+    @Test
+    void analyse_writesInInputOrder(@TempDir Path dir) throws Exception {
+        final Path output = dir.resolve("analysis.txt");
+        assertEquals(N_POSITIONS + 1, analyser(0, 2).analyse(writeInput(dir), output));
+
+        final List<String> lines = Files.readAllLines(output);
+        assertEquals(N_POSITIONS + 1, lines.size());
+        final List<GameState> positions = positions();
+        for (int i = 0; i < lines.size(); i++) {
+            final String[] fields = lines.get(i).split(" ");
+            assertEquals(i, Integer.parseInt(fields[0]));
+            if (i == 5) {
+                assertEquals("error", fields[1]);
+                continue;
+            }
+            final GameState position = positions.get(i < 5 ? i : i - 1);
+            assertEquals("2", fields[1]);
+            // Which move exactly depends on what else is in the shared table by then.
+            assertTrue(position.play(Integer.parseInt(fields[2])).isPresent());
+        }
+    }
+
+    @Test
+    void analyse_resumesFromCheckpoint(@TempDir Path dir) throws Exception {
+        final Path input = writeInput(dir);
+        final Path output = dir.resolve("analysis.txt");
+        analyser(0, 2).analyse(input, output);
+        final List<String> complete = Files.readAllLines(output);
+
+        // As if it had died after the checkpoint at 4, partway through a line.
+        final String firstFour = String.join("\n", complete.subList(0, 4)) + "\n";
+        Files.writeString(output, firstFour + "4 1 23", StandardCharsets.US_ASCII);
+        Files.writeString(BulkAnalyser.checkpointPath(output), "4 " + firstFour.length() + "\n");
+
+        assertEquals(N_POSITIONS + 1 - 4, analyser(0, 2).analyse(input, output));
+        final List<String> resumed = Files.readAllLines(output);
+        assertEquals(complete.size(), resumed.size());
+        assertEquals(complete.subList(0, 4), resumed.subList(0, 4));
+        for (int i = 0; i < resumed.size(); i++) {
+            assertTrue(resumed.get(i).startsWith(i + " "));
+        }
+        assertEquals(0, analyser(0, 2).analyse(input, output));
+        assertEquals(resumed, Files.readAllLines(output));
+    }
+
+    @Test
+    void analyse_timeLimitCutsSearchesShort(@TempDir Path dir) throws Exception {
+        final Path output = dir.resolve("analysis.txt");
+        final Path input = Files.write(dir.resolve("positions.txt"),
+                List.of(PositionCodec.toBase64(GameState.newGame())), StandardOpenOption.CREATE);
+        analyser(200, 40).analyse(input, output);
+        final String[] fields = Files.readAllLines(output).get(0).split(" ");
+        assertTrue(fields[1].equals("none") || Integer.parseInt(fields[1]) < 40);
+    }
+}
@@ -0,0 +1,158 @@
+package engine.distributed;
+
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.GameState;
+import engine.evaluators.MaterialEvaluator;
+import engine.record.PositionCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistributedSearchTest {
+    private final List<AutoCloseable> toClose = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() throws Exception {
+        for (AutoCloseable closeable : toClose) {
+            closeable.close();
+        }
+    }
+
+    private static Engine newEngine() {
+        return new Engine(new MaterialEvaluator(), 2, 10000);
+    }
+
+    private InetSocketAddress startWorker() throws IOException {
+        final SearchWorker worker = new SearchWorker(newEngine(), 0).start();
+        toClose.add(worker);
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), worker.getPort());
+    }
+
+    /**
+     * A worker that dies as soon as it is given work.
+     */
+    private InetSocketAddress startDyingWorker() throws IOException {
+        final ServerSocket serverSocket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+        toClose.add(serverSocket);
+        final Thread thread = new Thread(() -> {
+            try (Socket socket = serverSocket.accept()) {
+                socket.getInputStream().read();
+            } catch (IOException e) {
+                // Dying anyway.
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+    }
+
+    /**
+     * A worker that takes work and never replies, nor hangs up.
+     */
+    private InetSocketAddress startHangingWorker() throws IOException {
+        final ServerSocket serverSocket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+        toClose.add(serverSocket);
+        final Thread thread = new Thread(() -> {
+            try (Socket socket = serverSocket.accept()) {
+                while (socket.getInputStream().read() >= 0) {
+                    // Swallow requests.
+                }
+            } catch (IOException e) {
+                // Hung up on.
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+    }
+
+    private static GameState midOpening() {
+        GameState state = GameState.newGame();
+        for (int i = 0; i < 4; i++) {
+            state = state.possibleMoves().get(3 * i);
+        }
+        return state;
+    }
+
+    @Test
+    void positionCodec_roundTrip() throws Exception {
+        final GameState state = midOpening();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PositionCodec.write(new DataOutputStream(bytes), state);
+        assertEquals(2 + 200 + 1 + 4 + 16 + 2 + 8, bytes.size());
+        final GameState read = PositionCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(state, read);
+    }
+
+    @Test
+    void positionCodec_rejectsMalformedInput() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PositionCodec.write(new DataOutputStream(bytes), midOpening());
+        final byte[] valid = bytes.toByteArray();
+
+        final byte[] badOwner = valid.clone();
+        badOwner[2] = (byte) 0xFF;
+        final byte[] badPlayer = valid.clone();
+        badPlayer[2 + 200 + 1] = 9;
+        for (byte[] malformed : List.of(badOwner, badPlayer, Arrays.copyOf(valid, 100))) {
+            assertThrows(IOException.class,
+                    () -> PositionCodec.read(new DataInputStream(new ByteArrayInputStream(malformed))));
+        }
+        assertThrows(IOException.class, () -> PositionCodec.fromBase64("AAAA"));
+    }
+
+    @Test
+    void evaluate_matchesLocalSearch() throws Exception {
+        final DistributedSearch search = new DistributedSearch(newEngine(), List.of(startWorker(), startWorker()));
+        toClose.add(search);
+        final GameState state = midOpening();
+        final EvaluatedGameState expected = newEngine().evaluate(state, 3, false);
+        assertEquals(expected, search.evaluate(state, 3));
+        assertEquals(2, search.nWorkers());
+    }
+
+    @Test
+    void evaluate_reassignsWorkOfDeadWorker() throws Exception {
+        final DistributedSearch search = new DistributedSearch(newEngine(),
+                List.of(startDyingWorker(), startWorker()));
+        toClose.add(search);
+        final GameState state = midOpening();
+        assertEquals(newEngine().evaluate(state, 2, false), search.evaluate(state, 2));
+        assertEquals(1, search.nWorkers());
+    }
+
+    @Test
+    void evaluate_finishesLocallyWithoutWorkers() throws Exception {
+        final DistributedSearch search = new DistributedSearch(newEngine(), List.of(startDyingWorker()));
+        toClose.add(search);
+        final GameState state = midOpening();
+        assertEquals(newEngine().evaluate(state, 2, false), search.evaluate(state, 2));
+        assertEquals(0, search.nWorkers());
+    }
+
+    @Test
+    void evaluate_givesUpOnHangingWorker() throws Exception {
+        final DistributedSearch search = new DistributedSearch(newEngine(), List.of(startHangingWorker()), 200);
+        toClose.add(search);
+        final GameState state = midOpening();
+        assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> assertEquals(newEngine().evaluate(state, 2, false), search.evaluate(state, 2)));
+        assertEquals(0, search.nWorkers());
+    }
+}
@@ -0,0 +1,91 @@
+package engine.duo;
+
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.GameState;
+import engine.Move;
+import engine.evaluators.MaterialEvaluator;
+import model.player.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuoSearchTest {
+    private final DuoSearch search = new DuoSearch(GameState.DUO_SIZE, GameState.DUO_SIZE);
+
+    private static int[] sortedMoves(List<GameState> children) {
+        return children.stream()
+                .mapToInt(GameState::getLastMove)
+                .filter(move -> move != Move.NONE)
+                .sorted()
+                .toArray();
+    }
+
+    @Test
+    void newDuoGame_firstMovesCoverStartingPoint() {
+        final GameState start = GameState.newDuoGame();
+        assertEquals(GameState.DUO_STARTING_ORDER, start.getNextPlayers());
+        for (GameState child : start.possibleMoves()) {
+            assertEquals(Player.A, child.getBoard().getSquare(4, 4));
+        }
+        // Both starting points sit on the diagonal, so transposing keeps the players as they are.
+        assertEquals(Player.B, start.getBoard().transposedPlayer(Player.B));
+    }
+
+    @Test
+    void legalMoves_matchGeneralMoveGeneration() {
+        GameState state = GameState.newDuoGame();
+        for (int ply = 0; ply < 30 && !state.isOver(); ply++) {
+            final List<GameState> children = state.possibleMoves();
+            final int[] expected = sortedMoves(children);
+            final int[] actual = search.legalMoves(state);
+            Arrays.sort(actual);
+            assertArrayEquals(expected, actual, "ply " + ply);
+            state = children.get(children.size() / 3);
+        }
+    }
+
+    /**
+     * Plain minimax over GameStates, scoring leaves with a depth-0 search.
+     */
+    private double minimax(GameState state, int depth) {
+        if (depth == 0) {
+            return search.search(state, 0).getEvaluation().getScores().get(state.nowPlaying());
+        }
+        double best = -Double.MAX_VALUE;
+        for (GameState child : state.possibleMoves()) {
+            best = Math.max(best, -minimax(child, depth - 1));
+        }
+        return best;
+    }
+
+    @Test
+    void search_agreesWithMinimax() {
+        GameState state = GameState.newDuoGame();
+        for (int ply = 0; ply < 6; ply++) {
+            state = state.possibleMoves().get(ply * 7);
+        }
+        final EvaluatedGameState result = search.search(state, 2);
+        assertEquals(minimax(state, 2), result.getEvaluation().getScores().get(state.nowPlaying()), 1e-9);
+        assertEquals(-minimax(result.getBestMove(), 1), result.getEvaluation().getScores().get(state.nowPlaying()), 1e-9);
+    }
+
+    @Test
+    void engine_playsDuoGameToTheEnd() throws Exception {
+        final Engine engine = new Engine(new MaterialEvaluator(), 2, 1000);
+        engine.setDuoSearch(search);
+        GameState state = GameState.newDuoGame();
+        final List<GameState> plies = new ArrayList<>();
+        while (!state.isOver()) {
+            state = engine.evaluate(state, 2, false).getBestMove();
+            plies.add(state);
+        }
+        assertTrue(plies.size() > 20);
+        assertTrue(state.getBoard().getNSquaresOccupied().get(Player.A) > 0);
+        assertEquals(0, (int) state.getBoard().getNSquaresOccupied().get(Player.C));
+    }
+}
@@ -0,0 +1,61 @@
+package engine.evaluators;
+
+import engine.BoardEvaluator;
+import engine.GameState;
+import model.player.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchEvaluationTest {
+    /**
+     * A few plies in, so that everyone has something on the board.
+     */
+    private static GameState midOpening() {
+        GameState state = GameState.newGame();
+        for (int i = 0; i < 6; i++) {
+            state = state.possibleMoves().get(i);
+        }
+        return state;
+    }
+
+    /**
+     * Check batch scores against scoring each child alone, to within TOLERANCE.
+     */
+    private static void assertMatchesOneByOne(BoardEvaluator evaluator, GameState parent, double tolerance) {
+        final List<GameState> children = parent.possibleMoves();
+        final double[] scores = new double[BoardEvaluator.N_SCORE_ROWS * children.size()];
+        evaluator.evaluateChildren(parent, children, scores);
+        for (int i = 0; i < children.size(); i++) {
+            for (Player player : Player.values()) {
+                final double expected = evaluator.evaluate(children.get(i)).getScores().get(player);
+                assertEquals(expected, scores[player.ordinal() * children.size() + i], tolerance);
+            }
+        }
+    }
+
+    @Test
+    void material_matchesOneByOne() {
+        assertMatchesOneByOne(new MaterialEvaluator(), midOpening(), 0);
+        assertMatchesOneByOne(new MaterialEvaluator(), GameState.newGame(), 0);
+    }
+
+    @Test
+    void materialMinusOthers_matchesOneByOne() {
+        // Same noise either way.
+        assertMatchesOneByOne(new MaterialMinusOthersEvaluator(0), midOpening(), 0);
+    }
+
+    @Test
+    void default_fillsMissingPlayersWithNaN() {
+        final BoardEvaluator evaluator = state -> new MaterialEvaluator().evaluate(state)
+                .relabelled(player -> player == Player.B ? Player.A : player);
+        final GameState parent = midOpening();
+        final List<GameState> children = parent.possibleMoves();
+        final double[] scores = new double[BoardEvaluator.N_SCORE_ROWS * children.size()];
+        evaluator.evaluateChildren(parent, children, scores);
+        assertTrue(Double.isNaN(scores[Player.B.ordinal() * children.size()]));
+    }
+}
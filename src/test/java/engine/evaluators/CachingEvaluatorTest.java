@@ -0,0 +1,74 @@
+package engine.evaluators;
+
+import engine.BoardEvaluator;
+import engine.Engine;
+import engine.GameState;
+import model.player.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingEvaluatorTest {
+    private static final BoardEvaluator MATERIAL = new MaterialMinusOthersEvaluator(3);
+
+    @Test
+    void evaluate_secondCallIsAHit() {
+        final AtomicInteger nCalls = new AtomicInteger();
+        final CachingEvaluator cache = new CachingEvaluator(state -> {
+            nCalls.incrementAndGet();
+            return MATERIAL.evaluate(state);
+        }, 10);
+        final GameState state = GameState.newGame().possibleMoves().get(3);
+        assertEquals(MATERIAL.evaluate(state), cache.evaluate(state));
+        assertEquals(MATERIAL.evaluate(state), cache.evaluate(state));
+        assertEquals(1, nCalls.get());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void evaluateChildren_onlyMissesGoToEvaluator() {
+        final AtomicInteger nEvaluated = new AtomicInteger();
+        final CachingEvaluator cache = new CachingEvaluator(new BoardEvaluator() {
+            @Override
+            public engine.Evaluation evaluate(GameState state) {
+                return MATERIAL.evaluate(state);
+            }
+
+            @Override
+            public void evaluateChildren(GameState parent, List<GameState> children, double[] scores) {
+                nEvaluated.addAndGet(children.size());
+                MATERIAL.evaluateChildren(parent, children, scores);
+            }
+        }, 20);
+        final GameState parent = GameState.newGame().possibleMoves().get(0);
+        final List<GameState> children = parent.possibleMoves();
+        cache.evaluate(children.get(0));
+        cache.evaluate(children.get(7));
+
+        final int n = children.size();
+        final double[] scores = new double[BoardEvaluator.N_SCORE_ROWS * n];
+        cache.evaluateChildren(parent, children, scores);
+        assertEquals(n - 2, nEvaluated.get());
+        final double[] expected = new double[BoardEvaluator.N_SCORE_ROWS * n];
+        MATERIAL.evaluateChildren(parent, children, expected);
+        for (int i = 0; i < n; i++) {
+            for (Player player : GameState.STARTING_ORDER) {
+                assertEquals(expected[player.ordinal() * n + i], scores[player.ordinal() * n + i], 1e-9);
+            }
+        }
+
+        cache.evaluateChildren(parent, children, scores);
+        assertEquals(n - 2, nEvaluated.get());
+    }
+
+    @Test
+    void engine_sameResultsBehindCache() throws Exception {
+        final GameState state = GameState.newGame().possibleMoves().get(0);
+        assertEquals(new Engine(MATERIAL, 3, 10000).evaluate(state, 3, true),
+                new Engine(new CachingEvaluator(MATERIAL, 4), 3, 10000).evaluate(state, 3, true));
+    }
+}
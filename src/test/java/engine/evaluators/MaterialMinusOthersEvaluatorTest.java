@@ -0,0 +1,45 @@
+package engine.evaluators;
+
+import engine.Engine;
+import engine.Evaluation;
+import engine.GameState;
+import model.player.Player;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaterialMinusOthersEvaluatorTest {
+    private static GameState midOpening() {
+        GameState state = GameState.newGame();
+        for (int i = 0; i < 5; i++) {
+            state = state.possibleMoves().get(i);
+        }
+        return state;
+    }
+
+    @Test
+    void evaluate_samePositionSameScore() {
+        final GameState state = midOpening();
+        final Evaluation first = new MaterialMinusOthersEvaluator(7).evaluate(state);
+        assertEquals(first, new MaterialMinusOthersEvaluator(7).evaluate(state));
+        assertNotEquals(first, new MaterialMinusOthersEvaluator(8).evaluate(state));
+    }
+
+    @Test
+    void evaluate_noiseUnderHalf() {
+        final Evaluation noiseless = new MaterialEvaluator().evaluate(GameState.newGame());
+        final Evaluation noisy = new MaterialMinusOthersEvaluator(7).evaluate(GameState.newGame());
+        for (Player player : GameState.STARTING_ORDER) {
+            final double noise = noisy.getScores().get(player) - noiseless.getScores().get(player);
+            assertTrue(noise >= 0 && noise < 0.5);
+        }
+    }
+
+    @Test
+    void parallelSearch_reproducible() throws Exception {
+        final GameState state = midOpening();
+        final Engine first = new Engine(new MaterialMinusOthersEvaluator(7), 4, 100000);
+        final Engine second = new Engine(new MaterialMinusOthersEvaluator(7), 4, 100000);
+        assertEquals(first.evaluate(state, 3, true), second.evaluate(state, 3, true));
+    }
+}
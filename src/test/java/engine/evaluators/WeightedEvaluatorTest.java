@@ -0,0 +1,39 @@
+package engine.evaluators;
+
+import engine.GameState;
+import model.player.Player;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedEvaluatorTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void features_newGame() {
+        final double[][] features = WeightedEvaluator.features(GameState.newGame());
+        // Every player: nothing placed and no corners yet, but the whole board and every piece to play.
+        assertArrayEquals(new double[]{0, 0, 0, 0, 400, 1200, 89}, features[0]);
+        assertArrayEquals(features[0], features[3]);
+    }
+
+    @Test
+    void evaluate_materialWeightsScoreSquaresMinusOthers() {
+        final GameState state = GameState.newGame().possibleMoves().get(0);
+        final WeightedEvaluator evaluator = new WeightedEvaluator(WeightedEvaluator.MATERIAL_WEIGHTS);
+        final int nSquares = state.getBoard().getNSquaresOccupied().get(Player.A);
+        assertEquals(nSquares, evaluator.evaluate(state).getScores().get(Player.A));
+        assertEquals(-nSquares, evaluator.evaluate(state).getScores().get(Player.B));
+    }
+
+    @Test
+    void saveLoad_roundTrip() throws Exception {
+        final double[] weights = {1, -0.5, 0.25, 0, 2, -1, 0.125};
+        new WeightedEvaluator(weights).save(tempDir.resolve("weights.txt"));
+        assertArrayEquals(weights, WeightedEvaluator.load(tempDir.resolve("weights.txt")).getWeights());
+    }
+}
@@ -0,0 +1,86 @@
+package engine.persistent;
+
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.GameState;
+import engine.evaluators.MaterialEvaluator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentTranspositionTableTest {
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private GameState state;
+    private EvaluatedGameState result;
+
+    @BeforeEach
+    void searchOnePosition() throws Exception {
+        file = tempDir.resolve("tt.bin");
+        state = GameState.newGame().trackingTransposes().possibleMoves().get(0);
+        result = new Engine(new MaterialEvaluator(), 2, 1000).evaluate(state, 1, false);
+    }
+
+    @Test
+    void lookup_survivesReopen() throws Exception {
+        try (PersistentTranspositionTable table = PersistentTranspositionTable.open(file, 64, 1, 100)) {
+            table.store(state, 1, result);
+        }
+        try (PersistentTranspositionTable table = PersistentTranspositionTable.open(file, 64, 1, 100)) {
+            final Optional<EvaluatedGameState> stored = table.lookup(state, 1);
+            assertTrue(stored.isPresent());
+            assertEquals(result, stored.get());
+        }
+    }
+
+    @Test
+    void open_rejectsTableTooBigToMap() {
+        assertThrows(IllegalArgumentException.class, () ->
+                PersistentTranspositionTable.open(file, PersistentTranspositionTable.MAX_BUCKETS + 1, 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> PersistentTranspositionTable.open(file, 0, 1, 100));
+    }
+
+    @Test
+    void lookup_deeperThanStored() throws Exception {
+        try (PersistentTranspositionTable table = PersistentTranspositionTable.open(file, 64, 1, 100)) {
+            table.store(state, 1, result);
+            assertTrue(table.lookup(state, 2).isEmpty());
+        }
+    }
+
+    @Test
+    void lookup_transposedPosition() throws Exception {
+        try (PersistentTranspositionTable table = PersistentTranspositionTable.open(file, 64, 1, 100)) {
+            table.store(state, 1, result);
+            final Optional<EvaluatedGameState> stored = table.lookup(state.transposed(), 1);
+            assertTrue(stored.isPresent());
+            assertEquals(result.transposed(), stored.get());
+        }
+    }
+
+    @Test
+    void lookup_corruptRecordIsMiss() throws Exception {
+        try (PersistentTranspositionTable table = PersistentTranspositionTable.open(file, 1, 1, 100)) {
+            table.store(state, 1, result);
+        }
+        // With a single bucket, the record is at the start of the data. Flip a bit in its depth.
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            final long depthOffset = PersistentTranspositionTable.HEADER_BYTES + 16;
+            raw.seek(depthOffset);
+            final int b = raw.read();
+            raw.seek(depthOffset);
+            raw.write(b ^ 0x40);
+        }
+        try (PersistentTranspositionTable table = PersistentTranspositionTable.open(file, 1, 1, 100)) {
+            assertTrue(table.lookup(state, 1).isEmpty());
+        }
+    }
+}
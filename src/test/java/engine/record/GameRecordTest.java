@@ -0,0 +1,140 @@
+package engine.record;
+
+import engine.Evaluation;
+import engine.GameState;
+import model.player.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRecordTest {
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private List<GameState> opening;
+
+    /**
+     * First eight plies of some game, always taking the last legal move.
+     */
+    @BeforeEach
+    void playOpening() {
+        file = tempDir.resolve("games.bin");
+        opening = new ArrayList<>();
+        GameState state = GameState.newGame();
+        for (int i = 0; i < 8; i++) {
+            final List<GameState> moves = state.possibleMoves();
+            state = moves.get(moves.size() - 1);
+            opening.add(state);
+        }
+    }
+
+    @Test
+    void roundTrip_fromNewGame() throws Exception {
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            writer.writeGame(GameState.newGame(), opening);
+        }
+        try (GameRecordReader reader = GameRecordReader.open(file)) {
+            assertTrue(reader.next());
+            assertFalse(reader.hasSnapshot());
+            assertEquals(8, reader.nPlies());
+            final List<GameState> replayed = new ArrayList<>();
+            reader.replay(replayed::add);
+            assertEquals(opening, replayed.subList(1, replayed.size()));
+            assertFalse(reader.next());
+        }
+        // Header plus three bytes of record header and two per ply.
+        assertEquals(6 + 3 + 2 * 8, Files.size(file));
+    }
+
+    @Test
+    void roundTrip_duoGameFromItsStart() throws Exception {
+        final List<GameState> plies = new ArrayList<>();
+        GameState state = GameState.newDuoGame();
+        while (!state.isOver()) {
+            final List<GameState> moves = state.possibleMoves();
+            state = moves.get(moves.size() / 2);
+            plies.add(state);
+        }
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            writer.writeGame(GameState.newDuoGame(), plies);
+        }
+        try (GameRecordReader reader = GameRecordReader.open(file)) {
+            assertTrue(reader.next());
+            assertTrue(reader.hasSnapshot());
+            assertEquals(GameState.newDuoGame(), reader.startPosition());
+            assertEquals(state, reader.replay());
+            assertTrue(reader.replay().isOver());
+        }
+    }
+
+    @Test
+    void roundTrip_snapshotAndSeveralGames() throws Exception {
+        final GameState midGame = opening.get(3);
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            writer.writePosition(midGame);
+            writer.writeGame(midGame, opening.subList(4, 8));
+            writer.writeGame(GameState.newGame(), opening.subList(0, 2));
+        }
+        try (GameRecordReader reader = GameRecordReader.open(file)) {
+            assertTrue(reader.next());
+            assertTrue(reader.hasSnapshot());
+            assertEquals(midGame, reader.replay());
+            assertEquals(midGame.getTurnNumber(), reader.replay().getTurnNumber());
+
+            assertTrue(reader.next());
+            assertEquals(opening.get(7), reader.replay());
+            assertEquals(opening.get(7).getLastMove(), reader.move(3));
+
+            assertTrue(reader.next());
+            assertEquals(opening.get(1), reader.replay());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void roundTrip_pass() throws Exception {
+        final GameState passed = opening.get(7).pass();
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            final List<GameState> plies = new ArrayList<>(opening);
+            plies.add(passed);
+            writer.writeGame(GameState.newGame(), plies);
+        }
+        try (GameRecordReader reader = GameRecordReader.open(file)) {
+            assertTrue(reader.next());
+            assertEquals(passed, reader.replay());
+        }
+    }
+
+    @Test
+    void roundTrip_labels() throws Exception {
+        final EnumMap<Player, Double> scores = new EnumMap<>(Player.class);
+        scores.put(Player.A, 1.5);
+        scores.put(Player.B, -2.0);
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            writer.writeLabelledGame(GameState.newGame(), opening, List.of(new Sample(3, new Evaluation(scores))));
+            writer.writeGame(GameState.newGame(), opening);
+        }
+        try (GameRecordReader reader = GameRecordReader.open(file)) {
+            assertTrue(reader.next());
+            assertTrue(reader.hasLabels());
+            assertEquals(opening.get(7).getBoard().getNSquaresOccupied().get(Player.C), reader.outcome(Player.C));
+            assertEquals(1, reader.nSamples());
+            assertEquals(3, reader.samplePly(0));
+            assertEquals(-2.0, reader.sampleScore(0, Player.B));
+            assertEquals(0.0, reader.sampleScore(0, Player.D));
+
+            assertTrue(reader.next());
+            assertFalse(reader.hasLabels());
+            assertEquals(opening.get(7), reader.replay());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package engine.selfplay;
+
+import engine.Engine;
+import engine.GameState;
+import engine.evaluators.MaterialEvaluator;
+import engine.evaluators.MaterialMinusOthersEvaluator;
+import engine.record.GameRecordReader;
+import model.player.Player;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelfPlayTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void run_everyGameLandsInSomeShard() throws Exception {
+        final SelfPlay selfPlay = new SelfPlay(seed -> new Engine(new MaterialEvaluator(), 1, 1000),
+                1, 2, 2, 1.0, 1, 1, 0L);
+        final long nSamples = selfPlay.run(3, tempDir);
+
+        int nGames = 0;
+        long nRecordedSamples = 0;
+        for (int shard = 0; shard < 2; shard++) {
+            try (GameRecordReader reader = GameRecordReader.open(tempDir.resolve(String.format("shard-%03d.bin", shard)))) {
+                while (reader.next()) {
+                    nGames++;
+                    assertTrue(reader.hasLabels());
+                    // Every position where a move was searched is sampled.
+                    assertEquals(reader.nPlies(), reader.nSamples());
+                    nRecordedSamples += reader.nSamples();
+
+                    final GameState end = reader.replay();
+                    assertTrue(end.isOver());
+                    for (Player player : GameState.newGame().getNextPlayers()) {
+                        assertEquals(end.getBoard().getNSquaresOccupied().get(player), reader.outcome(player));
+                    }
+                }
+            }
+        }
+        assertEquals(3, nGames);
+        assertEquals(nSamples, nRecordedSamples);
+    }
+
+    @Test
+    void run_failsWhenAWriterDies() throws Exception {
+        // A directory where the shard should go, so its writer can't open it.
+        Files.createDirectories(tempDir.resolve("shard-000.bin"));
+        final SelfPlay selfPlay = new SelfPlay(seed -> new Engine(new MaterialEvaluator(), 1, 1000),
+                1, 2, 1, 1.0, 1, 1, 0L);
+        assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> assertThrows(ExecutionException.class, () -> selfPlay.run(20, tempDir)));
+    }
+
+    @Test
+    void run_gamesFromOneWorkerDiffer() throws Exception {
+        final SelfPlay selfPlay = new SelfPlay(seed -> new Engine(new MaterialMinusOthersEvaluator(seed), 1, 1000),
+                1, 1, 1, 0.0, 1, 1, 0L);
+        selfPlay.run(2, tempDir);
+
+        final List<List<Integer>> games = new ArrayList<>();
+        try (GameRecordReader reader = GameRecordReader.open(tempDir.resolve("shard-000.bin"))) {
+            while (reader.next()) {
+                final List<Integer> moves = new ArrayList<>();
+                for (int ply = 0; ply < reader.nPlies(); ply++) {
+                    moves.add(reader.move(ply));
+                }
+                games.add(moves);
+            }
+        }
+        assertEquals(2, games.size());
+        assertNotEquals(games.get(0), games.get(1));
+    }
+}
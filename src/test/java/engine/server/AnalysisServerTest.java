@@ -0,0 +1,117 @@
+package engine.server;
+
+import engine.Engine;
+import engine.EvaluatedGameState;
+import engine.GameState;
+import engine.evaluators.MaterialEvaluator;
+import engine.record.PositionCodec;
+import model.player.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisServerTest {
+    private AnalysisServer server;
+
+    @AfterEach
+    void close() throws Exception {
+        server.close();
+    }
+
+    private static Engine newEngine() {
+        return new Engine(new MaterialEvaluator(), 2, 10000);
+    }
+
+    private static GameState opening() {
+        return GameState.newGame().possibleMoves().get(5);
+    }
+
+    @Test
+    void analyze_overSocket() throws Exception {
+        server = new AnalysisServer(newEngine(), 0, 2, 8).start();
+        final EvaluatedGameState expected = newEngine().evaluate(opening(), 2, false);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            final PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII);
+            final BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            out.println("analyze 2 60000 " + PositionCodec.toBase64(opening()));
+            final String[] reply = in.readLine().split(" ");
+            assertEquals("ok", reply[0]);
+            assertEquals(expected.getBestMove().getLastMove(), Integer.parseInt(reply[1]));
+            assertEquals(expected.getEvaluation().getScores().get(Player.B), Double.parseDouble(reply[3]));
+
+            out.println("analyze two 60000 " + PositionCodec.toBase64(opening()));
+            assertTrue(in.readLine().startsWith("error"));
+            out.println("analyze 2 60000 AAAA");
+            assertTrue(in.readLine().startsWith("error"));
+            out.println("analyze 2 60000 " + Base64.getEncoder().encodeToString(new byte[]{2, 2, (byte) 0xFF}));
+            assertTrue(in.readLine().startsWith("error"));
+            out.println("analyze 0 60000 " + PositionCodec.toBase64(opening()));
+            assertTrue(in.readLine().startsWith("error"));
+            out.println("analyze " + (AnalysisServer.MAX_DEPTH + 1) + " 60000 " + PositionCodec.toBase64(opening()));
+            assertTrue(in.readLine().startsWith("error"));
+            out.println("quit");
+            assertNull(in.readLine());
+        }
+    }
+
+    @Test
+    void submit_coalescesIdenticalPositions() throws Exception {
+        server = new AnalysisServer(newEngine(), 0, 1, 8);
+        final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        final CompletableFuture<EvaluatedGameState> first = server.submit(opening(), 2, deadline);
+        final CompletableFuture<EvaluatedGameState> second = server.submit(opening(), 2, deadline);
+        final CompletableFuture<EvaluatedGameState> shallower = server.submit(opening(), 1, deadline);
+        assertSame(first, second);
+        assertNotSame(first, shallower);
+
+        server.start();
+        assertEquals(newEngine().evaluate(opening(), 2, false), first.get(1, TimeUnit.MINUTES));
+    }
+
+    @Test
+    void submit_dropsExpiredSearches() throws Exception {
+        server = new AnalysisServer(newEngine(), 0, 1, 8);
+        final CompletableFuture<EvaluatedGameState> expired = server.submit(opening(), 2, System.nanoTime() - 1);
+        server.start();
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> expired.get(1, TimeUnit.MINUTES));
+        assertTrue(e.getCause() instanceof TimeoutException);
+    }
+
+    @Test
+    void submit_stopsSearchAtDeadline() throws Exception {
+        // Wide enough that the deepest search would take far longer than the test waits.
+        server = new AnalysisServer(new Engine(new MaterialEvaluator(), 8, 100000), 0, 1, 8).start();
+        final CompletableFuture<EvaluatedGameState> deep = server.submit(opening(), AnalysisServer.MAX_DEPTH,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200));
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> deep.get(1, TimeUnit.MINUTES));
+        assertTrue(e.getCause() instanceof TimeoutException);
+
+        // The only worker is free again.
+        final CompletableFuture<EvaluatedGameState> shallow = server.submit(opening(), 1,
+                System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+        assertNotNull(shallow.get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_turnsAwayWhenQueueIsFull() throws Exception {
+        server = new AnalysisServer(newEngine(), 0, 1, 1);
+        final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        server.submit(opening(), 2, deadline);
+        final CompletableFuture<EvaluatedGameState> rejected = server.submit(opening(), 3, deadline);
+        assertTrue(rejected.isCompletedExceptionally());
+    }
+}
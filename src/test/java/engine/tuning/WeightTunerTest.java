@@ -0,0 +1,102 @@
+package engine.tuning;
+
+import engine.Evaluation;
+import engine.GameState;
+import engine.record.GameRecordWriter;
+import engine.record.Sample;
+import model.player.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightTunerTest {
+    @TempDir
+    Path tempDir;
+
+    private List<Path> files;
+    private List<GameState> samples;
+
+    /**
+     * Two files of short games, always taking the first or last legal move, with every third ply sampled.
+     */
+    @BeforeEach
+    void writeGames() throws Exception {
+        files = new ArrayList<>();
+        samples = new ArrayList<>();
+        for (int file = 0; file < 2; file++) {
+            final Path path = tempDir.resolve("games-" + file + ".bin");
+            try (GameRecordWriter writer = new GameRecordWriter(path)) {
+                for (int game = 0; game < 3; game++) {
+                    final List<GameState> plies = new ArrayList<>();
+                    final List<Sample> gameSamples = new ArrayList<>();
+                    GameState state = GameState.newGame();
+                    for (int ply = 0; ply < 12; ply++) {
+                        if (ply % 3 == game) {
+                            gameSamples.add(new Sample(ply, new Evaluation(new EnumMap<>(Player.class))));
+                            samples.add(state);
+                        }
+                        final List<GameState> moves = state.possibleMoves();
+                        state = moves.get(file == 0 ? 0 : moves.size() - 1);
+                        plies.add(state);
+                    }
+                    writer.writeLabelledGame(GameState.newGame(), plies, gameSamples);
+                }
+            }
+            files.add(path);
+        }
+    }
+
+    /**
+     * Scores every player the same constant, so the best weight is the mean final square count.
+     */
+    private static WeightTuner constantTuner() {
+        return new WeightTuner(weights -> state -> {
+            final EnumMap<Player, Double> scores = new EnumMap<>(Player.class);
+            for (Player player : GameState.STARTING_ORDER) {
+                scores.put(player, weights[0]);
+            }
+            return new Evaluation(scores);
+        }, 3, 2, 1.0, 0.001, 200);
+    }
+
+    @Test
+    void meanSquaredErrors_matchesDirectComputation() throws Exception {
+        final double[] errors = constantTuner().meanSquaredErrors(files, List.of(new double[]{0}, new double[]{5}));
+        assertEquals(24, samples.size());
+        // Every game in a file ends in the same position, 12 plies in.
+        double expected0 = 0;
+        double expected5 = 0;
+        for (int file = 0; file < 2; file++) {
+            GameState state = GameState.newGame();
+            for (int ply = 0; ply < 12; ply++) {
+                final List<GameState> moves = state.possibleMoves();
+                state = moves.get(file == 0 ? 0 : moves.size() - 1);
+            }
+            for (Player player : GameState.STARTING_ORDER) {
+                final int outcome = state.getBoard().getNSquaresOccupied().get(player);
+                expected0 += 12 * outcome * outcome;
+                expected5 += 12 * (5 - outcome) * (5 - outcome);
+            }
+        }
+        assertEquals(expected0 / 96, errors[0], 1e-9);
+        assertEquals(expected5 / 96, errors[1], 1e-9);
+    }
+
+    @Test
+    void tune_findsMeanOutcome() throws Exception {
+        final double[] weights = constantTuner().tune(files, new double[]{0});
+        final double[] errors = constantTuner().meanSquaredErrors(files, List.of(weights,
+                new double[]{weights[0] + 0.01}, new double[]{weights[0] - 0.01}));
+        assertTrue(errors[0] <= errors[1]);
+        assertTrue(errors[0] <= errors[2]);
+        // Three pieces each, of 1 to 5 squares.
+        assertTrue(weights[0] > 3 && weights[0] < 15, "weight " + weights[0]);
+    }
+}
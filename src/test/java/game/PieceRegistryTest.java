@@ -0,0 +1,47 @@
+package game;
+
+import com.google.common.collect.ImmutableList;
+import model.piece.Piece;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PieceRegistryTest {
+    @Test
+    void nOrientations_is91() {
+        assertEquals(91, PieceRegistry.N_ORIENTATIONS);
+    }
+
+    @Test
+    void orientations_areDistinctAndMapBack() {
+        final Set<Piece> seen = new HashSet<>();
+        for (int pieceId = 0; pieceId < PieceRegistry.N_PIECES; pieceId++) {
+            for (int orientationId : PieceRegistry.orientations(pieceId)) {
+                assertEquals(pieceId, PieceRegistry.pieceOf(orientationId));
+                assertTrue(seen.add(PieceRegistry.orientedPiece(orientationId)));
+            }
+        }
+    }
+
+    @Test
+    void pieceId_anyOrientation() {
+        assertEquals(5, PieceRegistry.pieceId(StandardPieces.PIECE_Y));
+        assertEquals(5, PieceRegistry.pieceId(StandardPieces.PIECE_Y.rotate().flip(true, false)));
+    }
+
+    @Test
+    void maskOf() {
+        assertEquals(0b101, PieceRegistry.maskOf(StandardPieces.PIECE_Q, StandardPieces.PIECE_E));
+        assertEquals(PieceRegistry.ALL_PIECES_MASK,
+                PieceRegistry.maskOf(StandardPieces.ALL_PIECES.toArray(new Piece[0])));
+    }
+
+    @Test
+    void maskOf_rejectsNonStandardPiece() {
+        final Piece hexomino = new Piece(1, 6, ImmutableList.of(0, 0, 0, 0, 0, 0), ImmutableList.of(0, 1, 2, 3, 4, 5));
+        assertThrows(IllegalArgumentException.class, () -> PieceRegistry.maskOf(hexomino));
+    }
+}